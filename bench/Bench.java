@@ -0,0 +1,174 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+// Минимальный харнесс микробенчмарков в духе JMH: прогрев, несколько измерительных итераций,
+// свежее состояние на каждую итерацию, результат в нс/операцию со стандартным отклонением.
+// JMH не подходит — он не генерирует обвязку для классов из пакета по умолчанию.
+// Настройки читаются из системных свойств bench.*; см. README.
+public final class Bench {
+
+    // Одна измеряемая операция; результат уходит в sink, чтобы JIT не выбросил вызов
+    public interface Operation {
+        Object run();
+    }
+
+    public record Result(String name, int size, double nsPerOp, double stdDev, long ops) {
+    }
+
+    private static final long MIN_BATCH_NANOS = 1_000_000;
+
+    private final int[] sizes;
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+    private final Pattern include;
+    private final List<Result> results = new ArrayList<>();
+    private long sink;
+
+    public Bench() {
+        this.sizes = Arrays.stream(System.getProperty("bench.sizes", "1000,10000,100000,1000000").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        this.warmupIterations = Integer.getInteger("bench.warmup", 3);
+        this.iterations = Integer.getInteger("bench.iterations", 5);
+        this.iterationNanos = Long.getLong("bench.time.ms", 1000L) * 1_000_000;
+        this.include = Pattern.compile(System.getProperty("bench.include", ".*"));
+    }
+
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    // setup вызывается перед каждой итерацией и не входит в замер
+    public void run(String name, IntFunction<Operation> setup) {
+        if (!include.matcher(name).find()) {
+            return;
+        }
+        for (int size : sizes) {
+            for (int i = 0; i < warmupIterations; i++) {
+                measure(setup.apply(size));
+            }
+            double[] samples = new double[iterations];
+            long totalOps = 0;
+            for (int i = 0; i < iterations; i++) {
+                long[] measured = measure(setup.apply(size));
+                samples[i] = (double) measured[0] / measured[1];
+                totalOps += measured[1];
+            }
+            Result result = new Result(name, size, mean(samples), stdDev(samples), totalOps);
+            results.add(result);
+            System.out.printf(Locale.ROOT, "%-28s %9d %14.1f +- %-10.1f ns/op%n",
+                    name, size, result.nsPerOp(), result.stdDev());
+        }
+    }
+
+    // Печатает сравнение с сохранённым прогоном и пишет текущий, если заданы bench.baseline и bench.out
+    public void finish() {
+        String baseline = System.getProperty("bench.baseline");
+        if (baseline != null) {
+            compare(readResults(new File(baseline)));
+        }
+        String out = System.getProperty("bench.out");
+        if (out != null) {
+            writeResults(new File(out));
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    // Пачки растут вдвое, пока одна не займёт хотя бы миллисекунду, чтобы nanoTime не искажал быстрые операции
+    private long[] measure(Operation operation) {
+        long batch = 1;
+        long elapsed = 0;
+        long ops = 0;
+        while (elapsed < iterationNanos) {
+            long start = System.nanoTime();
+            for (long i = 0; i < batch; i++) {
+                Object value = operation.run();
+                sink += value == null ? 0 : System.identityHashCode(value);
+            }
+            long batchNanos = System.nanoTime() - start;
+            elapsed += batchNanos;
+            ops += batch;
+            if (batchNanos < MIN_BATCH_NANOS) {
+                batch *= 2;
+            }
+        }
+        return new long[]{elapsed, ops};
+    }
+
+    private void compare(Map<String, Result> baseline) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-28s %9s %14s %14s %9s%n", "benchmark", "size", "base ns/op", "ns/op", "change");
+        for (Result result : results) {
+            Result base = baseline.get(key(result.name(), result.size()));
+            if (base == null) {
+                continue;
+            }
+            double change = (result.nsPerOp() - base.nsPerOp()) / base.nsPerOp() * 100;
+            System.out.printf(Locale.ROOT, "%-28s %9d %14.1f %14.1f %+8.1f%%%n",
+                    result.name(), result.size(), base.nsPerOp(), result.nsPerOp(), change);
+        }
+    }
+
+    private void writeResults(File file) {
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writer.println("benchmark,size,nsPerOp,stdDev,ops");
+            for (Result result : results) {
+                writer.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%d%n",
+                        result.name(), result.size(), result.nsPerOp(), result.stdDev(), result.ops());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static Map<String, Result> readResults(File file) {
+        Map<String, Result> results = new HashMap<>();
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(",");
+                Result result = new Result(fields[0], Integer.parseInt(fields[1]), Double.parseDouble(fields[2]),
+                        Double.parseDouble(fields[3]), Long.parseLong(fields[4]));
+                results.put(key(result.name(), result.size()), result);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла " + file.getAbsolutePath(), e);
+        }
+        return results;
+    }
+
+    private static String key(String name, int size) {
+        return name + "/" + size;
+    }
+
+    private static double mean(double[] samples) {
+        return Arrays.stream(samples).average().orElse(0);
+    }
+
+    private static double stdDev(double[] samples) {
+        if (samples.length < 2) {
+            return 0;
+        }
+        double mean = mean(samples);
+        double sum = 0;
+        for (double sample : samples) {
+            sum += (sample - mean) * (sample - mean);
+        }
+        return Math.sqrt(sum / (samples.length - 1));
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Горячие пути менеджера, истории и сохранения на досках разного размера.
+// Операции, которые добавляют задачи, сразу удаляют их, чтобы доска не росла за время итерации.
+public class ManagerBenchmarks {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final Duration SLOT = Duration.ofMinutes(30);
+    private static final Duration LENGTH = Duration.ofMinutes(15);
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    public static void main(String[] args) throws IOException {
+        Bench bench = new Bench();
+        File dir = Files.createTempDirectory("kanban-bench").toFile();
+        dir.deleteOnExit();
+
+        bench.run("createAndDeleteTask", size -> {
+            InMemoryTaskManager manager = boardOfTasks(new InMemoryTaskManager(), size);
+            return () -> {
+                Task task = new Task(0, "Bench", "Desc", TaskStatus.NEW);
+                manager.createTask(task);
+                manager.deleteTaskById(task.getId());
+                return task;
+            };
+        });
+
+        bench.run("createAndDeleteTimedTask", size -> {
+            InMemoryTaskManager manager = boardOfTasks(new InMemoryTaskManager(), size);
+            LocalDateTime free = slot(size);
+            return () -> {
+                Task task = new Task(0, "Bench", "Desc", TaskStatus.NEW, LENGTH, free);
+                manager.createTask(task);
+                manager.deleteTaskById(task.getId());
+                return task;
+            };
+        });
+
+        bench.run("createAndDeleteSubtask", size -> {
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            List<Integer> epicIds = boardOfSubtasks(manager, size);
+            SplittableRandom random = new SplittableRandom(size);
+            return () -> {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Subtask subtask = new Subtask(0, "Bench", "Desc", TaskStatus.NEW, epicId);
+                manager.createSubtask(subtask);
+                manager.deleteSubtaskById(subtask.getId());
+                return subtask;
+            };
+        });
+
+        bench.run("updateSubtask", size -> {
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            boardOfSubtasks(manager, size);
+            List<Subtask> subtasks = manager.getSubtasks();
+            TaskStatus[] statuses = TaskStatus.values();
+            SplittableRandom random = new SplittableRandom(size);
+            return () -> {
+                Subtask stored = subtasks.get(random.nextInt(subtasks.size()));
+                Subtask update = new Subtask(stored.getId(), stored.getTitle(), stored.getDescription(),
+                        statuses[random.nextInt(statuses.length)], stored.getEpicId(),
+                        stored.getDuration(), stored.getStartTime());
+                manager.updateSubtask(update);
+                return update;
+            };
+        });
+
+        bench.run("intersectionCheck", size -> {
+            TimeIntervalIndex index = new TimeIntervalIndex();
+            for (int i = 0; i < size; i++) {
+                index.put(new Task(i + 1, "Task " + i, "Desc", TaskStatus.NEW, LENGTH, slot(i)));
+            }
+            SplittableRandom random = new SplittableRandom(size);
+            return () -> {
+                LocalDateTime start = ORIGIN.plusMinutes(random.nextLong(size * SLOT.toMinutes()));
+                return index.findOverlap(start, start.plus(LENGTH), 0);
+            };
+        });
+
+        bench.run("historyAdd", size -> {
+            InMemoryHistoryManager history = new InMemoryHistoryManager();
+            List<Task> pool = untimedTasks(size);
+            pool.forEach(history::add);
+            SplittableRandom random = new SplittableRandom(size);
+            return () -> {
+                Task task = pool.get(random.nextInt(pool.size()));
+                history.add(task);
+                return task;
+            };
+        });
+
+        bench.run("historyGet", size -> {
+            InMemoryHistoryManager history = new InMemoryHistoryManager();
+            untimedTasks(size).forEach(history::add);
+            return history::getHistory;
+        });
+
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            PersistenceSettings settings = PersistenceSettings.defaults().withFormat(format);
+
+            bench.run("fileSave[" + format + "]", size -> {
+                FileBackedTaskManager manager = new FileBackedTaskManager(boardFile(dir, format, size), settings);
+                boardOfTasks(manager, size);
+                return () -> {
+                    manager.compact();
+                    return manager;
+                };
+            });
+
+            bench.run("fileLoad[" + format + "]", size -> {
+                File file = boardFile(dir, format, size);
+                FileBackedTaskManager source = new FileBackedTaskManager(file, settings);
+                boardOfTasks(source, size);
+                source.compact();
+                source.close();
+                return () -> {
+                    FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, settings);
+                    loaded.close();
+                    return loaded;
+                };
+            });
+        }
+
+        bench.finish();
+    }
+
+    private static LocalDateTime slot(int index) {
+        return ORIGIN.plus(SLOT.multipliedBy(index));
+    }
+
+    // restoreTask не пишет на диск, поэтому файловый менеджер заполняется так же быстро, как память
+    private static <M extends InMemoryTaskManager> M boardOfTasks(M manager, int size) {
+        for (int i = 0; i < size; i++) {
+            manager.restoreTask(new Task(i + 1, "Task " + i, "Desc", TaskStatus.NEW, LENGTH, slot(i)));
+        }
+        return manager;
+    }
+
+    private static List<Integer> boardOfSubtasks(InMemoryTaskManager manager, int size) {
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, size / SUBTASKS_PER_EPIC); i++) {
+            Epic epic = new Epic(0, "Epic " + i, "Desc");
+            manager.createEpic(epic);
+            epicIds.add(epic.getId());
+        }
+        for (int i = 0; i < size; i++) {
+            manager.createSubtask(new Subtask(0, "Subtask " + i, "Desc", TaskStatus.NEW,
+                    epicIds.get(i % epicIds.size()), LENGTH, slot(i)));
+        }
+        return epicIds;
+    }
+
+    private static List<Task> untimedTasks(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Task(i + 1, "Task " + i, "Desc", TaskStatus.NEW));
+        }
+        return tasks;
+    }
+
+    private static File boardFile(File dir, SnapshotFormat format, int size) {
+        File file = new File(dir, "board-" + size + "." + format.name().toLowerCase());
+        file.deleteOnExit();
+        if (file.exists() && !file.delete()) {
+            throw new UncheckedIOException(new IOException("Не удалось удалить " + file));
+        }
+        return file;
+    }
+}
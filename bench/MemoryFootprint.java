@@ -0,0 +1,97 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+// Сравнение занимаемой памяти: прежние коллекции с упакованными ключами против IntObjectHashMap/IntLinkedSet.
+// Сами задачи создаются заранее и общие для всех вариантов, поэтому считается только расход на структуру.
+// Второй замер — доска целиком у InMemoryTaskManager и ColumnarTaskManager (строки арены вне кучи не видны).
+// Замер — разница занятой кучи после принудительной сборки мусора: точность порядка процентов,
+// для сравнения вариантов этого достаточно. Число записей — bench.entries, по умолчанию 1 000 000.
+public class MemoryFootprint {
+
+    public static void main(String[] args) {
+        int entries = Integer.getInteger("bench.entries", 1_000_000);
+        Task[] tasks = new Task[entries];
+        for (int i = 0; i < entries; i++) {
+            tasks[i] = new Task(i + 1, "Task", "Desc", TaskStatus.NEW);
+        }
+
+        System.out.printf(Locale.ROOT, "%-36s %14s %12s%n", "layout", "bytes", "bytes/entry");
+        report("HashMap<Integer, Task>", entries, n -> {
+            Map<Integer, Task> map = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                map.put(i + 1, tasks[i]);
+            }
+            return map;
+        });
+        report("TreeMap<Integer, Task>", entries, n -> {
+            Map<Integer, Task> map = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                map.put(i + 1, tasks[i]);
+            }
+            return map;
+        });
+        report("IntObjectHashMap<Task> (sorted)", entries, n -> {
+            IntObjectHashMap<Task> map = IntObjectHashMap.sortedByKey();
+            for (int i = 0; i < n; i++) {
+                map.put(i + 1, tasks[i]);
+            }
+            return map;
+        });
+        report("LinkedHashSet<Integer>", entries, n -> {
+            LinkedHashSet<Integer> set = new LinkedHashSet<>();
+            for (int i = 0; i < n; i++) {
+                set.add(i + 1);
+            }
+            return set;
+        });
+        report("IntLinkedSet", entries, n -> {
+            IntLinkedSet set = new IntLinkedSet();
+            for (int i = 0; i < n; i++) {
+                set.add(i + 1);
+            }
+            return set;
+        });
+        System.out.println(tasks.length);
+
+        // Доска целиком: задачи создаются внутри замера, потому что InMemoryTaskManager хранит
+        // сами объекты, а ColumnarTaskManager — только колонки
+        System.out.printf(Locale.ROOT, "%n%-36s %14s %12s%n", "board", "bytes", "bytes/task");
+        report("InMemoryTaskManager", entries, n -> fill(new InMemoryTaskManager(), n));
+        report("ColumnarTaskManager", entries, n -> fill(new ColumnarTaskManager(), n));
+    }
+
+    private static TaskManager fill(TaskManager manager, int entries) {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW,
+                    Duration.ofMinutes(30), start.plusMinutes(30L * i)));
+        }
+        return manager;
+    }
+
+    private static void report(String name, int entries, IntFunction<Object> build) {
+        long before = usedHeap();
+        Object structure = build.apply(entries);
+        long bytes = usedHeap() - before;
+        System.out.printf(Locale.ROOT, "%-36s %14d %12.1f%n", name, bytes, (double) bytes / entries);
+        if (structure.hashCode() == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -1,10 +1,39 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 public class BaseHttpHandler {
 
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    protected static final int DEFAULT_PAGE_LIMIT = 100;
+    protected static final int MAX_PAGE_LIMIT = 1000;
+    protected static final int DEFAULT_IMPORT_CHUNK = 1000;
+    // Версии менеджера начинаются заново после перезапуска, поэтому ETag включает метку запуска процесса
+    private static final String ETAG_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    // Результат импорта одной строки NDJSON; id есть у принятых, error — у отклонённых
+    private record ImportResult(int line, int status, Integer id, String error) {
+    }
+
+    private record ImportItem<T>(int line, T value) {
+    }
+
     protected void sendText(HttpExchange h, String text, int code) throws IOException {
         byte[] resp = text.getBytes(StandardCharsets.UTF_8);
         h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
@@ -13,6 +42,180 @@ public class BaseHttpHandler {
         h.close();
     }
 
+    // JSON пишется прямо в тело ответа чанками: ни строка, ни массив байт всего ответа не создаются,
+    // а первые байты уходят клиенту, пока остальной список ещё сериализуется
+    protected void sendJson(HttpExchange h, Gson gson, Object value, int code) throws IOException {
+        h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        h.sendResponseHeaders(code, 0);
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE)) {
+            gson.toJson(value, writer);
+        } finally {
+            h.close();
+        }
+    }
+
+    // ?limit=&cursor= отдаёт страницу {"items":[...],"nextCursor":"..."}.
+    // Без этих параметров возвращает false, и обработчик отдаёт список целиком, как раньше
+    protected boolean sendPageIfRequested(HttpExchange h, Gson gson,
+                                          BiFunction<Integer, String, Page<?>> pager) throws IOException {
+        Map<String, String> query = queryParams(h);
+        if (!query.containsKey("limit") && !query.containsKey("cursor")) {
+            return false;
+        }
+        Page<?> page;
+        try {
+            int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_PAGE_LIMIT;
+            if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+                throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_LIMIT);
+            }
+            page = pager.apply(limit, query.get("cursor"));
+        } catch (IllegalArgumentException e) {
+            sendText(h, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))), 400);
+            return true;
+        }
+        sendJson(h, gson, page, 200);
+        return true;
+    }
+
+    protected Map<String, String> queryParams(HttpExchange h) {
+        Map<String, String> params = new HashMap<>();
+        String query = h.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // Импорт NDJSON: по объекту на строку. Строки читаются из тела по мере поступления и разбираются
+    // вне менеджера; каждые chunk строк (?chunk=, 0 — всё тело разом) вставляются одной пачкой через
+    // inBatch, то есть с одним сохранением. В ответ по строке NDJSON на каждую непустую строку запроса:
+    // {"line":N,"status":201,"id":..} или {"line":N,"status":400|406|500,"error":".."}.
+    // 406 — только пересечение по времени; прочие неверные данные (в том числе ссылка на несуществующий
+    // эпик) — 400. Ошибка в одной строке не прерывает импорт остальных
+    protected <T extends Task> void importNdjson(HttpExchange h, Gson gson, TaskManager manager, Class<T> type,
+                                                 BiConsumer<TaskManager, T> insert) throws IOException {
+        Map<String, String> query = queryParams(h);
+        int chunkSize;
+        try {
+            chunkSize = query.containsKey("chunk") ? Integer.parseInt(query.get("chunk")) : DEFAULT_IMPORT_CHUNK;
+            if (chunkSize < 0) {
+                throw new NumberFormatException("Размер пачки не может быть отрицательным: " + chunkSize);
+            }
+        } catch (NumberFormatException e) {
+            sendText(h, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))), 400);
+            return;
+        }
+        h.getResponseHeaders().add("Content-Type", "application/x-ndjson;charset=utf-8");
+        h.sendResponseHeaders(200, 0);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(h.getRequestBody(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE)) {
+            List<ImportItem<T>> chunk = new ArrayList<>();
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                T value;
+                try {
+                    value = gson.fromJson(line, type);
+                } catch (JsonParseException e) {
+                    writeImportResult(writer, gson, new ImportResult(lineNumber, 400, null, "Некорректный JSON"));
+                    continue;
+                } catch (RuntimeException e) {
+                    // Адаптеры полей (например, дата startTime) бросают свои исключения, а не JsonParseException
+                    writeImportResult(writer, gson, new ImportResult(lineNumber, 400, null,
+                            "Неверные данные задачи: " + e.getMessage()));
+                    continue;
+                }
+                if (value == null || value.getTitle() == null || value.getDescription() == null) {
+                    writeImportResult(writer, gson, new ImportResult(lineNumber, 400, null, "Неверные данные задачи"));
+                    continue;
+                }
+                chunk.add(new ImportItem<>(lineNumber, value));
+                if (chunkSize > 0 && chunk.size() >= chunkSize) {
+                    importChunk(writer, gson, manager, chunk, insert);
+                }
+            }
+            importChunk(writer, gson, manager, chunk, insert);
+        } finally {
+            h.close();
+        }
+    }
+
+    private <T extends Task> void importChunk(Writer writer, Gson gson, TaskManager manager,
+                                              List<ImportItem<T>> chunk, BiConsumer<TaskManager, T> insert)
+            throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportResult> results = new ArrayList<>(chunk.size());
+        manager.inBatch(batch -> {
+            for (ImportItem<T> item : chunk) {
+                try {
+                    insert.accept(batch, item.value());
+                    results.add(new ImportResult(item.line(), 201, item.value().getId(), null));
+                } catch (TaskOverlapException e) {
+                    results.add(new ImportResult(item.line(), 406, null, e.getMessage()));
+                } catch (IllegalArgumentException e) {
+                    results.add(new ImportResult(item.line(), 400, null, e.getMessage()));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    results.add(new ImportResult(item.line(), 500, null, String.valueOf(e.getMessage())));
+                }
+            }
+        });
+        chunk.clear();
+        for (ImportResult result : results) {
+            writeImportResult(writer, gson, result);
+        }
+        writer.flush();
+    }
+
+    // NDJSON требует одной строки на объект, поэтому отступы выключаются и у «красивого» Gson
+    private void writeImportResult(Writer writer, Gson gson, ImportResult result) throws IOException {
+        JsonWriter json = gson.newJsonWriter(writer);
+        json.setIndent("");
+        gson.toJson(result, ImportResult.class, json);
+        writer.write('\n');
+    }
+
+    // Ставит ETag по версии коллекции или задачи. Если клиент прислал его же в If-None-Match,
+    // отвечает 304 без тела и возвращает true — список тогда не читается и не сериализуется.
+    // Версию нужно брать до чтения данных: иначе при гонке с записью старое тело получило бы новый ETag
+    protected boolean sendNotModifiedIfMatches(HttpExchange h, String resource, long version) throws IOException {
+        if (version <= 0) {
+            return false;
+        }
+        String etag = "\"" + ETAG_EPOCH + "-" + resource + "-" + version + "\"";
+        h.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = h.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                h.sendResponseHeaders(304, -1);
+                h.close();
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected void sendNotFound(HttpExchange h) throws IOException {
         sendText(h, "{\"error\":\"Not Found\"}", 404);
     }
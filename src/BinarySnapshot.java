@@ -0,0 +1,193 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Двоичный снимок менеджера.
+// Заголовок: magic "KNBS" (int), версия (short), число задач (int).
+// Задача: тип (byte), id (int), статус (byte), epicId (int), начало в минутах от эпохи UTC (long,
+// NO_VALUE — нет), длительность в минутах (long, NO_VALUE — нет), название и описание
+// (длина в байтах int, -1 — null, затем UTF-8).
+// В конце: число записей истории (int) и их id (int).
+// Время хранится с точностью до минуты — секунды при записи отбрасываются.
+public final class BinarySnapshot {
+
+    public static final int MAGIC = 0x4B4E4253;
+    public static final short VERSION = 1;
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+    // Самая короткая запись задачи: тип, id, статус, epicId, начало, длительность и две строки null
+    private static final int MIN_TASK_BYTES = 1 + Integer.BYTES + 1 + Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    public record Contents(List<Task> tasks, List<Integer> historyIds) {
+    }
+
+    private BinarySnapshot() {
+    }
+
+    public static boolean isBinary(File file) {
+        if (file.length() < Integer.BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Задачи пишутся в переданном порядке; эпики должны идти раньше своих подзадач
+    public static byte[] toBytes(Collection<? extends Task> tasks, List<Task> history) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + tasks.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(tasks.size());
+            for (Task task : tasks) {
+                writeTask(out, task);
+            }
+            out.writeInt(history.size());
+            for (Task task : history) {
+                out.writeInt(task.getId());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сериализации снимка", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Contents read(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снимок слишком велик для отображения в память: " + file.getAbsolutePath());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer, file);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла " + file.getAbsolutePath(), e);
+        }
+    }
+
+    // Конвертирует существующий CSV-файл менеджера в двоичный снимок
+    public static void convertFromCsv(File csv, File binary) {
+        FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(csv);
+        byte[] bytes = toBytes(manager.getAllTasks(), manager.getHistory());
+        try (FileOutputStream out = new FileOutputStream(binary)) {
+            out.write(bytes);
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл " + binary.getAbsolutePath(), e);
+        } finally {
+            manager.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Использование: java BinarySnapshot <tasks.csv> <tasks.bin>");
+            return;
+        }
+        convertFromCsv(new File(args[0]), new File(args[1]));
+    }
+
+    // source — только для сообщений об ошибках
+    public static Contents read(ByteBuffer buffer, File source) {
+        if (buffer.remaining() < Integer.BYTES + Short.BYTES || buffer.getInt() != MAGIC) {
+            throw new ManagerSaveException("Файл не является двоичным снимком: " + source.getAbsolutePath());
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка " + version + ": " + source.getAbsolutePath());
+        }
+        try {
+            int count = readCount(buffer, MIN_TASK_BYTES, source);
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(readTask(buffer, source));
+            }
+            int historySize = readCount(buffer, Integer.BYTES, source);
+            List<Integer> historyIds = new ArrayList<>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                historyIds.add(buffer.getInt());
+            }
+            return new Contents(tasks, historyIds);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Снимок обрезан или повреждён: " + source.getAbsolutePath(), e);
+        }
+    }
+
+    // Число записей из заголовка проверяется по остатку буфера до выделения памяти под них
+    private static int readCount(ByteBuffer buffer, int minBytesPerItem, File source) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minBytesPerItem > buffer.remaining()) {
+            throw new ManagerSaveException("Недопустимое число записей " + count + " в снимке: " + source.getAbsolutePath());
+        }
+        return count;
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        out.writeByte(TaskType.of(task).ordinal());
+        out.writeInt(task.getId());
+        out.writeByte(task.getStatus().ordinal());
+        out.writeInt(task instanceof Subtask subtask ? subtask.getEpicId() : 0);
+        LocalDateTime start = task.getStartTime();
+        out.writeLong(start != null ? start.toEpochSecond(ZoneOffset.UTC) / 60 : NO_VALUE);
+        Duration duration = task.getDuration();
+        out.writeLong(duration != null ? duration.toMinutes() : NO_VALUE);
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+    }
+
+    private static Task readTask(ByteBuffer buffer, File source) {
+        TaskType type = TaskType.values()[buffer.get()];
+        int id = buffer.getInt();
+        TaskStatus status = TaskStatus.values()[buffer.get()];
+        int epicId = buffer.getInt();
+        long startMinute = buffer.getLong();
+        long durationMinutes = buffer.getLong();
+        String title = readString(buffer, source);
+        String description = readString(buffer, source);
+
+        LocalDateTime start = startMinute != NO_VALUE
+                ? LocalDateTime.ofEpochSecond(startMinute * 60, 0, ZoneOffset.UTC) : null;
+        Duration duration = durationMinutes != NO_VALUE ? Duration.ofMinutes(durationMinutes) : null;
+        return switch (type) {
+            case TASK -> new Task(id, title, description, status, duration, start);
+            case EPIC -> new Epic(id, title, description);
+            case SUBTASK -> new Subtask(id, title, description, status, epicId, duration, start);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, File source) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new ManagerSaveException("Недопустимая длина строки " + length + " в снимке: " + source.getAbsolutePath());
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
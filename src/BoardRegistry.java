@@ -0,0 +1,313 @@
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Независимые доски команд в одном процессе: у каждой свой FileBackedTaskManager со своим файлом
+// <каталог>/<id>.csv и своей блокировкой (ConcurrentTaskManager). Доска загружается при первом
+// обращении и выгружается на диск, если к ней не обращались дольше idleTimeout или если загруженных
+// досок больше maxLoadedBoards — тогда первыми уходят давно не использованные.
+// Доску, с которой сейчас работает запрос (см. Lease), выгрузить нельзя.
+// Выгрузка простаивающих досок по времени начинается после start()
+public class BoardRegistry implements AutoCloseable {
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    public static final int DEFAULT_MAX_LOADED_BOARDS = 1000;
+
+    private static final Pattern BOARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Duration MIN_SWEEP_PERIOD = Duration.ofMillis(100);
+    private static final Duration MAX_SWEEP_PERIOD = Duration.ofSeconds(30);
+
+    private static final Metrics.Counter LOADS = Metrics.global().counter(
+            "kanban_board_loads_total", "Число загрузок досок с диска");
+    private static final Metrics.Counter EVICTIONS = Metrics.global().counter(
+            "kanban_board_evictions_total", "Число выгрузок досок из памяти");
+    private static final Metrics.Counter EVICTION_FAILURES = Metrics.global().counter(
+            "kanban_board_eviction_failures_total", "Число выгрузок, при которых доску не удалось записать");
+
+    private final File directory;
+    private final PersistenceSettings settings;
+    private final long idleTimeoutNanos;
+    private final int maxLoadedBoards;
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final Duration sweepPeriod;
+    private final ScheduledExecutorService sweeper;
+    private final Metrics.Gauge loadedGauge;
+
+    // Разрешение на работу с доской на время запроса; пока оно не закрыто, доска не выгружается
+    public static final class Lease implements AutoCloseable {
+        private final Board board;
+        private boolean closed;
+
+        private Lease(Board board) {
+            this.board = board;
+        }
+
+        public TaskManager manager() {
+            return board.manager;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                board.leave();
+            }
+        }
+    }
+
+    private static final class Board {
+        private final String id;
+        // Число запросов, работающих с доской; -1 — доска выгружается и больше не выдаётся
+        private final AtomicInteger users = new AtomicInteger();
+        // Открывается, когда выгруженная доска записана и убрана из реестра
+        private final CountDownLatch evicted = new CountDownLatch(1);
+        private volatile long lastUsedNanos = System.nanoTime();
+        private FileBackedTaskManager storage;
+        private volatile ConcurrentTaskManager manager;
+
+        private Board(String id) {
+            this.id = id;
+        }
+
+        private boolean tryEnter() {
+            while (true) {
+                int current = users.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (users.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void leave() {
+            lastUsedNanos = System.nanoTime();
+            users.decrementAndGet();
+        }
+
+        private void awaitEvicted() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    evicted.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public BoardRegistry(File directory) {
+        this(directory, defaultSettings(), DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LOADED_BOARDS);
+    }
+
+    public BoardRegistry(File directory, PersistenceSettings settings, Duration idleTimeout, int maxLoadedBoards) {
+        if (directory == null || settings == null || idleTimeout == null) {
+            throw new IllegalArgumentException("Каталог досок, настройки и время простоя обязательны");
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero() || maxLoadedBoards <= 0) {
+            throw new IllegalArgumentException("Время простоя и число загруженных досок должны быть положительными");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ManagerSaveException("Не удалось создать каталог досок " + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+        this.settings = settings;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxLoadedBoards = maxLoadedBoards;
+        Duration period = idleTimeout.dividedBy(4);
+        if (period.compareTo(MIN_SWEEP_PERIOD) < 0) {
+            period = MIN_SWEEP_PERIOD;
+        } else if (period.compareTo(MAX_SWEEP_PERIOD) > 0) {
+            period = MAX_SWEEP_PERIOD;
+        }
+        this.sweepPeriod = period;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "kanban-board-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loadedGauge = Metrics.global().gauge("kanban_boards_loaded", "Число досок, загруженных в память",
+                boards::size);
+    }
+
+    // Запускает фоновую выгрузку простаивающих досок
+    public void start() {
+        long period = sweepPeriod.toMillis();
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Журнал дописывает по записи на изменение, а синхронная запись не заводит фоновых потоков,
+    // которых на тысячах досок было бы столько же
+    public static PersistenceSettings defaultSettings() {
+        return PersistenceSettings.defaults().withMode(PersistenceMode.JOURNAL).withDurability(DurabilityMode.SYNC);
+    }
+
+    public static BoardRegistry fromSystemProperties() {
+        return new BoardRegistry(
+                new File(System.getProperty("kanban.boards.dir", "boards")),
+                defaultSettings(),
+                Duration.ofSeconds(Integer.getInteger("kanban.boards.idleSeconds", (int) DEFAULT_IDLE_TIMEOUT.toSeconds())),
+                Integer.getInteger("kanban.boards.maxLoaded", DEFAULT_MAX_LOADED_BOARDS));
+    }
+
+    public static boolean isValidId(String boardId) {
+        return boardId != null && BOARD_ID.matcher(boardId).matches();
+    }
+
+    public File fileFor(String boardId) {
+        return new File(directory, boardId + ".csv");
+    }
+
+    // Доска загружается, если её нет в памяти; новая доска создаётся пустой, а файл появится
+    // с первым изменением
+    public Lease acquire(String boardId) {
+        if (!isValidId(boardId)) {
+            throw new IllegalArgumentException("Некорректный идентификатор доски: " + boardId);
+        }
+        while (true) {
+            Board board = boards.computeIfAbsent(boardId, Board::new);
+            if (!board.tryEnter()) {
+                // Доску выгружают прямо сейчас: ждём, пока она запишется и уйдёт из реестра
+                board.awaitEvicted();
+                continue;
+            }
+            boolean loaded;
+            try {
+                loaded = load(board);
+            } catch (RuntimeException e) {
+                board.leave();
+                throw e;
+            }
+            if (loaded) {
+                evictOverBudget();
+            }
+            return new Lease(board);
+        }
+    }
+
+    private boolean load(Board board) {
+        if (board.manager != null) {
+            return false;
+        }
+        synchronized (board) {
+            if (board.manager != null) {
+                return false;
+            }
+            File file = fileFor(board.id);
+            boolean exists = file.exists() || FileBackedTaskManager.journalFileFor(file).exists();
+            board.storage = exists
+                    ? FileBackedTaskManager.loadFromFile(file, settings)
+                    : new FileBackedTaskManager(file, settings);
+            board.manager = new ConcurrentTaskManager(board.storage);
+            if (exists) {
+                LOADS.increment();
+            }
+            return true;
+        }
+    }
+
+    public int loadedBoards() {
+        return boards.size();
+    }
+
+    public boolean isLoaded(String boardId) {
+        return boards.containsKey(boardId);
+    }
+
+    // Выгружает доски, простаивающие дольше idleTimeout; вызывается фоновым потоком
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Board board : boards.values()) {
+            if (now - board.lastUsedNanos >= idleTimeoutNanos) {
+                evictReportingFailure(board);
+            }
+        }
+    }
+
+    private void evictOverBudget() {
+        int excess = boards.size() - maxLoadedBoards;
+        if (excess <= 0) {
+            return;
+        }
+        List<Board> candidates = new ArrayList<>(boards.values());
+        candidates.sort(Comparator.comparingLong(board -> board.lastUsedNanos));
+        for (Board board : candidates) {
+            if (excess <= 0) {
+                break;
+            }
+            if (evictReportingFailure(board)) {
+                excess--;
+            }
+        }
+    }
+
+    // Выгрузка занимает доску навсегда (users = -1), поэтому с ней не работает ни один запрос.
+    // Доска уходит из реестра только после записи на диск: новая загрузка того же id
+    // не прочитает файл, который ещё дописывается
+    private boolean tryEvict(Board board) {
+        if (!board.users.compareAndSet(0, -1)) {
+            return false;
+        }
+        synchronized (board) {
+            try {
+                if (board.storage != null) {
+                    // Журнал сжимается, чтобы следующая загрузка не проигрывала его; доска, которую только читали,
+                    // не переписывается, а пустая новая так и не заводит файл
+                    try {
+                        if (board.storage.getJournalRecords() > 0) {
+                            board.storage.compact();
+                        }
+                    } finally {
+                        board.storage.close();
+                    }
+                }
+            } finally {
+                boards.remove(board.id, board);
+                board.evicted.countDown();
+            }
+        }
+        EVICTIONS.increment();
+        return true;
+    }
+
+    // Ошибка записи одной доски (например, заполненный диск) не останавливает выгрузку остальных, а в фоновом
+    // потоке — и следующие проходы: исключение из задачи scheduleWithFixedDelay молча отменяет все её запуски.
+    // Доска всё равно уходит из памяти: журнал сжимается только после записи снимка, так что следующая
+    // загрузка проиграет его
+    private boolean evictReportingFailure(Board board) {
+        try {
+            return tryEvict(board);
+        } catch (RuntimeException e) {
+            EVICTION_FAILURES.increment();
+            System.err.println("Не удалось записать доску " + board.id + " при выгрузке: " + e.getMessage());
+            e.printStackTrace();
+            return true;
+        }
+    }
+
+    // Выгружает все доски, которые сейчас не заняты запросами
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        loadedGauge.unregister();
+        for (Board board : boards.values()) {
+            evictReportingFailure(board);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardRegistryTest {
+
+    @Test
+    void shouldEvictIdleBoardsInBackgroundAndReloadThem() throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("boards").toFile();
+        try (BoardRegistry boards = new BoardRegistry(dir, BoardRegistry.defaultSettings(), Duration.ofMillis(200), 10)) {
+            boards.start();
+            try (BoardRegistry.Lease lease = boards.acquire("alpha")) {
+                lease.manager().createTask(new Task(0, "Task", "Desc", TaskStatus.NEW));
+            }
+            assertTrue(boards.isLoaded("alpha"));
+
+            awaitEvicted(boards, "alpha");
+            assertTrue(boards.fileFor("alpha").exists(), "Простаивающая доска должна быть записана на диск");
+            try (BoardRegistry.Lease lease = boards.acquire("alpha")) {
+                assertEquals(1, lease.manager().getTasks().size());
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepEvictingAfterBoardFailsToSave() throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("boards").toFile();
+        try (BoardRegistry boards = new BoardRegistry(dir, BoardRegistry.defaultSettings(), Duration.ofMillis(200), 10)) {
+            try (BoardRegistry.Lease lease = boards.acquire("broken")) {
+                lease.manager().createTask(new Task(0, "Task", "Desc", TaskStatus.NEW));
+            }
+            // Каталог на месте файла снимка: сжатие журнала при выгрузке падает
+            assertTrue(new File(boards.fileFor("broken"), "blocker").mkdirs());
+
+            boards.start();
+            awaitEvicted(boards, "broken");
+            try (BoardRegistry.Lease lease = boards.acquire("beta")) {
+                lease.manager().createTask(new Task(0, "Task", "Desc", TaskStatus.NEW));
+            }
+            awaitEvicted(boards, "beta");
+            assertTrue(boards.fileFor("beta").isFile(), "Фоновая выгрузка должна пережить ошибку другой доски");
+        }
+    }
+
+    @Test
+    void shouldEvictRemainingBoardsWhenOneFailsOnClose() throws IOException {
+        File dir = Files.createTempDirectory("boards").toFile();
+        BoardRegistry boards = new BoardRegistry(dir, BoardRegistry.defaultSettings(), Duration.ofHours(1), 10);
+        for (String id : new String[]{"alpha", "broken", "gamma"}) {
+            try (BoardRegistry.Lease lease = boards.acquire(id)) {
+                lease.manager().createTask(new Task(0, "Task", "Desc", TaskStatus.NEW));
+            }
+        }
+        assertTrue(new File(boards.fileFor("broken"), "blocker").mkdirs());
+
+        boards.close();
+        assertEquals(0, boards.loadedBoards());
+        assertTrue(boards.fileFor("alpha").isFile());
+        assertTrue(boards.fileFor("gamma").isFile());
+    }
+
+    private static void awaitEvicted(BoardRegistry boards, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (boards.isLoaded(id)) {
+            assertTrue(System.nanoTime() < deadline, "Доска " + id + " должна выгрузиться по времени простоя");
+            Thread.sleep(20);
+        }
+    }
+}
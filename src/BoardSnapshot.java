@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Неизменяемый срез доски на момент version: списки только для чтения из замороженных копий задач.
+// Менеджер публикует срез после изменений, и читатели получают его без копирования и без блокировок.
+// При пересборке заново собираются только изменившиеся коллекции, а копии задач,
+// чья версия не изменилась, берутся из предыдущего среза.
+public final class BoardSnapshot {
+
+    static final BoardSnapshot EMPTY = new BoardSnapshot(0, new long[TaskType.values().length],
+            List.of(), List.of(), List.of(), List.of());
+
+    private final long version;
+    private final long[] collectionVersions;
+    private final List<Task> tasks;
+    private final List<Epic> epics;
+    private final List<Subtask> subtasks;
+    private final List<Task> prioritized;
+
+    private BoardSnapshot(long version, long[] collectionVersions, List<Task> tasks, List<Epic> epics,
+                          List<Subtask> subtasks, List<Task> prioritized) {
+        this.version = version;
+        this.collectionVersions = collectionVersions;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.prioritized = prioritized;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public List<Task> tasks() {
+        return tasks;
+    }
+
+    public List<Epic> epics() {
+        return epics;
+    }
+
+    public List<Subtask> subtasks() {
+        return subtasks;
+    }
+
+    public List<Task> prioritized() {
+        return prioritized;
+    }
+
+    // Задачи, эпики и подзадачи одним списком — в таком порядке их пишет сохранение
+    public List<Task> allTasks() {
+        List<Task> all = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        all.addAll(tasks);
+        all.addAll(epics);
+        all.addAll(subtasks);
+        return all;
+    }
+
+    // Живые коллекции должны быть упорядочены по id и не меняться во время вызова. Копию эпика делает
+    // менеджер: статус и время эпика он ведёт отдельно от хранимого объекта
+    BoardSnapshot next(long version, long[] collectionVersions, Collection<Task> liveTasks,
+                       Collection<Epic> liveEpics, Collection<Subtask> liveSubtasks, TimeIntervalIndex schedule,
+                       UnaryOperator<Epic> epicCopy) {
+        boolean tasksChanged = changed(collectionVersions, TaskType.TASK);
+        boolean subtasksChanged = changed(collectionVersions, TaskType.SUBTASK);
+        List<Task> nextTasks = tasksChanged ? freeze(tasks, liveTasks, Task::new) : tasks;
+        List<Epic> nextEpics = changed(collectionVersions, TaskType.EPIC) ? freeze(epics, liveEpics, epicCopy) : epics;
+        List<Subtask> nextSubtasks = subtasksChanged ? freeze(subtasks, liveSubtasks, Subtask::new) : subtasks;
+        List<Task> nextPrioritized = tasksChanged || subtasksChanged
+                ? prioritize(schedule, nextTasks, nextSubtasks) : prioritized;
+        return new BoardSnapshot(version, collectionVersions.clone(), nextTasks, nextEpics, nextSubtasks, nextPrioritized);
+    }
+
+    private boolean changed(long[] current, TaskType type) {
+        return current[type.ordinal()] != collectionVersions[type.ordinal()];
+    }
+
+    // Обе последовательности упорядочены по id, поэтому прежние копии находятся одним проходом
+    private static <T extends Task> List<T> freeze(List<T> previous, Collection<T> live, UnaryOperator<T> copy) {
+        List<T> result = new ArrayList<>(live.size());
+        int i = 0;
+        for (T task : live) {
+            while (i < previous.size() && previous.get(i).getId() < task.getId()) {
+                i++;
+            }
+            if (i < previous.size() && previous.get(i).getId() == task.getId()
+                    && previous.get(i).getVersion() == task.getVersion()) {
+                result.add(previous.get(i));
+            } else {
+                T frozen = copy.apply(task);
+                frozen.freeze();
+                result.add(frozen);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<Task> prioritize(TimeIntervalIndex schedule, List<Task> tasks, List<Subtask> subtasks) {
+        IntObjectHashMap<Task> byId = new IntObjectHashMap<>();
+        tasks.forEach(task -> byId.put(task.getId(), task));
+        subtasks.forEach(subtask -> byId.put(subtask.getId(), subtask));
+        List<Task> result = new ArrayList<>(byId.size());
+        for (TimeIntervalIndex.Interval interval : schedule.after(null)) {
+            result.add(byId.get(interval.task().getId()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,67 @@
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+// /boards/{boardId}/tasks|epics|subtasks|history|prioritized/... — те же ресурсы, что и у сервера
+// с одной доской, но над менеджером выбранной доски. Доска берётся из реестра на время запроса,
+// путь без префикса /boards/{boardId} передаётся обычному обработчику ресурса
+public class BoardsHandler extends BaseHttpHandler implements HttpHandler {
+    private static final Set<String> RESOURCES = Set.of("tasks", "epics", "subtasks", "history", "prioritized");
+
+    private final BoardRegistry boards;
+    private final Gson gson;
+
+    public BoardsHandler(BoardRegistry boards, Gson gson) {
+        this.boards = boards;
+        this.gson = gson;
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        // "", "boards", boardId, "ресурс/..."
+        String[] parts = h.getRequestURI().getRawPath().split("/", 4);
+        if (parts.length < 4 || parts[3].isEmpty()) {
+            sendNotFound(h);
+            return;
+        }
+        String boardId = parts[2];
+        if (!BoardRegistry.isValidId(boardId)) {
+            sendText(h, gson.toJson(Map.of("error", "Некорректный идентификатор доски: " + boardId)), 400);
+            return;
+        }
+        String resource = parts[3].split("/", 2)[0];
+        // Неизвестный ресурс не должен загружать доску
+        if (!RESOURCES.contains(resource)) {
+            sendNotFound(h);
+            return;
+        }
+        BoardRegistry.Lease lease;
+        try {
+            lease = boards.acquire(boardId);
+        } catch (RuntimeException e) {
+            // Недоступный или повреждённый файл доски
+            e.printStackTrace();
+            sendInternalError(h);
+            return;
+        }
+        try (lease) {
+            handlerFor(resource, lease.manager()).handle(new RoutedExchange(h, "/" + parts[3]));
+        }
+    }
+
+    // Обработчики без состояния, поэтому создаются на каждый запрос к менеджеру доски
+    private HttpHandler handlerFor(String resource, TaskManager manager) {
+        return switch (resource) {
+            case "tasks" -> new TasksHandler(manager, gson);
+            case "epics" -> new EpicsHandler(manager, gson);
+            case "subtasks" -> new SubtasksHandler(manager, gson);
+            case "history" -> new HistoryHandler(manager, gson);
+            case "prioritized" -> new PrioritizedHandler(manager, gson);
+            default -> throw new IllegalArgumentException("Неизвестный ресурс доски: " + resource);
+        };
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// История просмотров ограниченного размера без глобальной блокировки.
+// Каждый просмотр получает возрастающий номер; порядок хранится в ConcurrentSkipListMap
+// по номеру, а индекс id → номер последнего просмотра — в ConcurrentHashMap.
+// При переполнении вытесняются записи с наименьшими номерами, то есть давно не просмотренные.
+public class BoundedHistoryManager implements HistoryManager {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final int capacity;
+    private final ConcurrentSkipListMap<Long, Task> order = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, Long> index = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public BoundedHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+        int id = task.getId();
+        long seq = sequence.incrementAndGet();
+        Long previous = index.put(id, seq);
+        if (previous != null) {
+            unlink(previous);
+        }
+        order.put(seq, task);
+        size.incrementAndGet();
+        // Параллельный add или remove того же id мог сменить индекс до вставки — тогда эта запись лишняя
+        if (!Long.valueOf(seq).equals(index.get(id))) {
+            unlink(seq);
+        }
+        evict();
+    }
+
+    @Override
+    public void remove(int id) {
+        Long seq = index.remove(id);
+        if (seq != null) {
+            unlink(seq);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return new ArrayList<>(order.values());
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    private void unlink(long seq) {
+        if (order.remove(seq) != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private void evict() {
+        while (size.get() > capacity) {
+            Map.Entry<Long, Task> eldest = order.pollFirstEntry();
+            if (eldest == null) {
+                return;
+            }
+            size.decrementAndGet();
+            index.remove(eldest.getValue().getId(), eldest.getKey());
+        }
+    }
+}
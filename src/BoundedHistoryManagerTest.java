@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedHistoryManagerTest {
+
+    private static Task task(int id) {
+        return new Task(id, "Task " + id, "Desc", TaskStatus.NEW);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyViewedTask() {
+        BoundedHistoryManager history = new BoundedHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        history.add(task(1)); // task 1 снова самый свежий
+        history.add(task(4));
+
+        assertEquals(List.of(task(3), task(1), task(4)), history.getHistory());
+    }
+
+    @Test
+    void shouldRemoveTaskById() {
+        BoundedHistoryManager history = new BoundedHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.remove(1);
+        history.add(task(3));
+        history.add(task(4));
+
+        assertEquals(List.of(task(2), task(3), task(4)), history.getHistory());
+    }
+
+    @Test
+    void shouldStayBoundedAndDuplicateFreeUnderConcurrentViews() throws Exception {
+        int capacity = 50;
+        BoundedHistoryManager history = new BoundedHistoryManager(capacity);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    history.add(task((i * 7 + offset) % 200));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<Task> snapshot = history.getHistory();
+        assertTrue(snapshot.size() <= capacity, "История не должна превышать заданный размер");
+        assertEquals(snapshot.size(), new HashSet<>(snapshot).size(), "Задачи в истории не должны повторяться");
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Слушатели изменений одного менеджера. Список копируется только при подписке и отписке, поэтому
+// уведомление идёт без блокировок, а слушатель может отписаться прямо из onChange.
+// Слушатель, бросивший исключение, отписывается: его ошибка не должна обрывать изменение доски на середине
+public class ChangeListeners {
+
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void add(TaskChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Слушатель не может быть null");
+        }
+        listeners.add(listener);
+    }
+
+    public void remove(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(TaskEvent.Action action, TaskType type, int id, long version) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        TaskEvent event = new TaskEvent(action, type, id, version);
+        for (TaskChangeListener listener : listeners) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                listeners.remove(listener);
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Подписка одного клиента на изменения доски с буфером на capacity событий. Менеджер кладёт
+// события без ожидания; если клиент не успевает их забирать и буфер заполнен, подписка отменяется:
+// изменения доски не ждут медленного клиента, а память под его события не растёт.
+// После переполнения клиент должен перечитать доску — пропущенные события не сохраняются.
+// Подписка создаётся через subscribe: слушатель регистрируется только у полностью построенного объекта
+public class ChangeSubscription implements TaskChangeListener, AutoCloseable {
+
+    // Будит читателя, ждущего в poll, когда подписка отменена из-за переполнения
+    private static final TaskEvent OVERFLOW = new TaskEvent(TaskEvent.Action.CLEARED, TaskType.TASK, 0, -1);
+
+    private final TaskManager manager;
+    private final BlockingQueue<TaskEvent> buffer;
+    private final Runnable onOverflow;
+    // Уведомления могут приходить из нескольких потоков изменения сразу; отменяет подписку только
+    // тот, кто первым переключил флаг
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    private ChangeSubscription(TaskManager manager, int capacity, Runnable onOverflow) {
+        this.manager = manager;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.onOverflow = onOverflow;
+    }
+
+    public static ChangeSubscription subscribe(TaskManager manager, int capacity) {
+        return subscribe(manager, capacity, () -> {
+        });
+    }
+
+    // onOverflow вызывается ровно один раз, в потоке изменения и под его блокировкой, поэтому не должен блокироваться
+    public static ChangeSubscription subscribe(TaskManager manager, int capacity, Runnable onOverflow) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера подписки должен быть положительным: " + capacity);
+        }
+        ChangeSubscription subscription = new ChangeSubscription(manager, capacity, onOverflow);
+        manager.addChangeListener(subscription);
+        return subscription;
+    }
+
+    @Override
+    public void onChange(TaskEvent event) {
+        if (overflowed.get() || buffer.offer(event)) {
+            return;
+        }
+        if (!overflowed.compareAndSet(false, true)) {
+            return;
+        }
+        manager.removeChangeListener(this);
+        // Событие из другого потока может успеть занять место, освобождённое для маркера
+        do {
+            buffer.clear();
+        } while (!buffer.offer(OVERFLOW));
+        onOverflow.run();
+    }
+
+    // Следующее событие, null — если за timeout ничего не пришло или подписка переполнилась
+    public TaskEvent poll(Duration timeout) throws InterruptedException {
+        TaskEvent event = buffer.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        return event == OVERFLOW ? null : event;
+    }
+
+    // Уже накопившееся событие без ожидания
+    public TaskEvent poll() {
+        TaskEvent event = buffer.poll();
+        return event == OVERFLOW ? null : event;
+    }
+
+    public boolean isOverflowed() {
+        return overflowed.get();
+    }
+
+    @Override
+    public void close() {
+        manager.removeChangeListener(this);
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Сжатые gzip контрольные точки доски рядом с основным файлом: <файл>.<номер>.gz, номер растёт с каждой записью.
+// Точка пишется во временный файл и переименовывается, поэтому недописанная точка при восстановлении не видна.
+// После записи новой точки остаются только retention последних, более старые удаляются
+public class CheckpointStore {
+
+    private static final String SUFFIX = ".gz";
+
+    private final File file;
+    private final int retention;
+    private long nextSequence;
+
+    public CheckpointStore(File file, int retention) {
+        this.file = file;
+        this.retention = retention;
+    }
+
+    // Точки от новой к старой
+    public List<File> list() {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File[] candidates = dir == null ? null : dir.listFiles((d, name) -> sequenceOf(name) > 0);
+        List<File> result = new ArrayList<>();
+        if (candidates != null) {
+            result.addAll(List.of(candidates));
+        }
+        result.sort(Comparator.comparingLong((File f) -> sequenceOf(f.getName())).reversed());
+        return result;
+    }
+
+    public synchronized File write(byte[] content) {
+        if (nextSequence == 0) {
+            List<File> existing = list();
+            nextSequence = existing.isEmpty() ? 1 : sequenceOf(existing.get(0).getName()) + 1;
+        }
+        File target = new File(file.getPath() + "." + nextSequence + SUFFIX);
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(compress(content));
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи контрольной точки " + target.getAbsolutePath(), e);
+        }
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи контрольной точки " + target.getAbsolutePath(), e);
+        }
+        nextSequence++;
+        prune();
+        return target;
+    }
+
+    public static byte[] compress(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, 1 << 16)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сжатия снимка", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void prune() {
+        List<File> checkpoints = list();
+        for (File old : checkpoints.subList(Math.min(retention, checkpoints.size()), checkpoints.size())) {
+            old.delete();
+        }
+    }
+
+    // Номер точки по имени файла или 0, если файл не точка этой доски
+    private long sequenceOf(String name) {
+        String prefix = file.getName() + ".";
+        if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+            return 0;
+        }
+        String number = name.substring(prefix.length(), name.length() - SUFFIX.length());
+        if (number.isEmpty() || number.length() > 18 || !number.chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return Long.parseLong(number);
+    }
+}
@@ -0,0 +1,722 @@
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.PrimitiveIterator;
+
+// Менеджер для очень больших досок поверх ColumnarTaskStore: задачи хранятся колонками примитивов,
+// строки — вне кучи, а расписание — в LongSortedSet с ключом (начало в минутах, id).
+// На задачу не приходится ни одного долгоживущего объекта, поэтому паузы сборщика мусора
+// не растут с размером доски. Объекты Task, Epic и Subtask создаются только при чтении.
+// Поведение совпадает с InMemoryTaskManager, кроме двух мест: время хранится с точностью до минуты,
+// а get* возвращают копии, поэтому изменения полученного объекта нужно передавать через update*.
+// Не потокобезопасен; для многопоточного доступа оборачивается в ConcurrentTaskManager.
+public class ColumnarTaskManager implements TaskManager {
+
+    private static final Metrics.Histogram CONFLICT_CHECKS = Metrics.global().histogram(
+            "kanban_conflict_check_duration_seconds", "Время проверки пересечений по времени");
+    private static final Metrics.Counter CONFLICTS = Metrics.global().counter(
+            "kanban_conflicts_total", "Число отклонённых из-за пересечения задач");
+
+    private static final long MIN_MINUTE = Integer.MIN_VALUE + 1L;
+    private static final long MAX_MINUTE = Integer.MAX_VALUE;
+    // Счётчики подзадач эпика по статусам; последний элемент — всего подзадач
+    private static final int TOTAL = TaskStatus.values().length;
+    private static final int PRIORITIZED = TaskType.values().length;
+
+    private record ListCache(long version, WeakReference<List<? extends Task>> list) {
+    }
+
+    private final ColumnarTaskStore store = new ColumnarTaskStore();
+    // Ключи всех задач и подзадач со временем начала — порядок getPrioritizedTasks
+    private final LongSortedSet schedule = new LongSortedSet();
+    // Только непустые интервалы: они попарно не пересекаются, и для проверки хватает соседа слева
+    private final LongSortedSet busy = new LongSortedSet();
+    private final IntObjectHashMap<int[]> epicCounts = new IntObjectHashMap<>();
+    private final HistoryManager historyManager;
+
+    private int nextId = 1;
+    private long clock;
+    private final long[] collectionVersions = new long[TaskType.values().length];
+    // Последний выданный список каждого типа и расписание. Пока читатель держит список, чтение
+    // без изменений отдаёт его же, а пересборка берёт из него копии неизменившихся задач.
+    // Ссылки слабые: копии, которые никому не нужны, в куче не задерживаются
+    private final ListCache[] lists = new ListCache[PRIORITIZED + 1];
+    private final ChangeListeners listeners = new ChangeListeners();
+
+    public ColumnarTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return frozenList(TaskType.TASK);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long version = collectionVersions[TaskType.TASK.ordinal()] + collectionVersions[TaskType.SUBTASK.ordinal()];
+        List<Task> cached = cachedList(PRIORITIZED, version);
+        if (cached != null) {
+            return cached;
+        }
+        List<Task> result = new ArrayList<>(schedule.size());
+        PrimitiveIterator.OfLong keys = schedule.from(LongSortedSet.NONE, false);
+        while (keys.hasNext()) {
+            result.add(frozen(store.row(idOf(keys.nextLong()))));
+        }
+        return cacheList(PRIORITIZED, version, Collections.unmodifiableList(result));
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return frozenList(TaskType.EPIC);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return frozenList(TaskType.SUBTASK);
+    }
+
+    @Override
+    public Page<Task> getTasks(int limit, String cursor) {
+        return pageById(TaskType.TASK, limit, cursor);
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasks(int limit, String cursor) {
+        PageCursor.checkLimit(limit);
+        TimeIntervalIndex.Interval from = PageCursor.decodeInterval(cursor);
+        PrimitiveIterator.OfLong keys = from == null
+                ? schedule.from(LongSortedSet.NONE, false)
+                : schedule.from(key(clamp(ColumnarTaskStore.toMinute(from.start())), from.id()), false);
+        List<Task> items = new ArrayList<>();
+        Task last = null;
+        while (keys.hasNext() && items.size() < limit) {
+            last = store.materialize(store.row(idOf(keys.nextLong())));
+            items.add(last);
+        }
+        String next = keys.hasNext()
+                ? PageCursor.ofInterval(new TimeIntervalIndex.Interval(last.getId(), last.getStartTime(), last.getStartTime(), null))
+                : null;
+        return new Page<>(items, next);
+    }
+
+    @Override
+    public Page<Epic> getEpics(int limit, String cursor) {
+        return pageById(TaskType.EPIC, limit, cursor);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(int limit, String cursor) {
+        return pageById(TaskType.SUBTASK, limit, cursor);
+    }
+
+    // Те же правила окна, что у TimeIntervalIndex.overlapping
+    @Override
+    public ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало окна должно быть раньше конца: " + from + " — " + to);
+        }
+        PageCursor.checkLimit(limit);
+        long low = key(clamp(ColumnarTaskStore.toMinuteCeiling(from)), 0);
+        long upper = key(clamp(ColumnarTaskStore.toMinuteCeiling(to)), 0);
+        long previous = busy.lower(low);
+        if (previous == LongSortedSet.NONE
+                || store.endMinute(store.row(idOf(previous))) <= ColumnarTaskStore.toMinute(from)) {
+            return firstTasks(schedule.from(low, true), upper, limit);
+        }
+        // Пустые задачи между началом previous и from в окно не попадают, поэтому previous добавляется отдельно
+        ArrayList<Task> result = firstTasks(schedule.from(low, true), upper, limit - 1);
+        result.add(0, store.materialize(store.row(idOf(previous))));
+        return result;
+    }
+
+    @Override
+    public ArrayList<Task> getTasksStartingFrom(LocalDateTime time, int limit) {
+        PageCursor.checkLimit(limit);
+        return firstTasks(schedule.from(key(clamp(ColumnarTaskStore.toMinuteCeiling(time)), 0), true), Long.MAX_VALUE, limit);
+    }
+
+    // Тот же проход, что у TimeIntervalIndex.findFreeSlot, но по ключам busy
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, WorkingHours hours) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность должна быть положительной: " + duration);
+        }
+        if (hours != null && !hours.fits(duration)) {
+            throw new IllegalArgumentException("Длительность " + duration + " не помещается в рабочий день " + hours);
+        }
+        LocalDateTime candidate = hours != null ? hours.align(after, duration) : after;
+        long floor = busy.lower(key(clamp(ColumnarTaskStore.toMinute(candidate) + 1), 0));
+        PrimitiveIterator.OfLong keys = floor != LongSortedSet.NONE
+                ? busy.from(floor, true)
+                : busy.from(key(clamp(ColumnarTaskStore.toMinuteCeiling(candidate)), 0), true);
+        while (keys.hasNext()) {
+            int row = store.row(idOf(keys.nextLong()));
+            LocalDateTime start = ColumnarTaskStore.toTime(store.startMinute(row));
+            LocalDateTime end = ColumnarTaskStore.toTime(store.endMinute(row));
+            if (!end.isAfter(candidate)) {
+                continue;
+            }
+            if (!start.isBefore(candidate.plus(duration))) {
+                break;
+            }
+            candidate = hours != null ? hours.align(end, duration) : end;
+        }
+        return candidate;
+    }
+
+    @Override
+    public Optional<Task> getTask(int id) {
+        return view(id, TaskType.TASK);
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        return view(id, TaskType.EPIC);
+    }
+
+    @Override
+    public Optional<Subtask> getSubtask(int id) {
+        return view(id, TaskType.SUBTASK);
+    }
+
+    @Override
+    public void createTask(Task task) {
+        task.setId(generateId());
+        checkIntersection(task);
+        int row = store.add(task.getId(), TaskType.TASK);
+        store.write(row, task);
+        index(row);
+        touch(TaskType.TASK, row);
+        publish(TaskEvent.Action.CREATED, TaskType.TASK, task.getId());
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        epic.setId(generateId());
+        epic.clearSubtasks();
+        int row = store.add(epic.getId(), TaskType.EPIC);
+        store.write(row, epic);
+        epicCounts.put(epic.getId(), new int[TOTAL + 1]);
+        applyRollup(row, false);
+        touch(TaskType.EPIC, row);
+        publish(TaskEvent.Action.CREATED, TaskType.EPIC, epic.getId());
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        int epicRow = store.row(subtask.getEpicId(), TaskType.EPIC);
+        if (epicRow < 0 || subtask.getEpicId() == subtask.getId()) {
+            throw new IllegalArgumentException("Epic с id=" + subtask.getEpicId() + " не найден");
+        }
+
+        subtask.setId(generateId());
+        checkIntersection(subtask);
+
+        int row = store.add(subtask.getId(), TaskType.SUBTASK);
+        store.write(row, subtask);
+        index(row);
+        link(epicRow, row);
+        contribute(epicRow, row, 1);
+        applyRollup(epicRow, false);
+        touch(TaskType.SUBTASK, row);
+        touch(TaskType.EPIC, epicRow);
+        publish(TaskEvent.Action.CREATED, TaskType.SUBTASK, subtask.getId());
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, subtask.getEpicId());
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task == null) return;
+        int row = store.row(task.getId(), TaskType.TASK);
+        if (row < 0) return;
+        checkIntersection(task);
+        unindex(row);
+        store.write(row, task);
+        index(row);
+        touch(TaskType.TASK, row);
+        publish(TaskEvent.Action.UPDATED, TaskType.TASK, task.getId());
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) return;
+        int row = store.row(epic.getId(), TaskType.EPIC);
+        if (row < 0) return;
+        // статус, время и подзадачи эпика вычисляет менеджер, поэтому обновляем только название и описание
+        store.setTitle(row, epic.getTitle());
+        store.setDescription(row, epic.getDescription());
+        touch(TaskType.EPIC, row);
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epic.getId());
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null) return;
+        int row = store.row(subtask.getId(), TaskType.SUBTASK);
+        if (row < 0) return;
+        int epicRow = store.row(subtask.getEpicId(), TaskType.EPIC);
+        if (epicRow < 0) return;
+        checkIntersection(subtask);
+
+        int previousEpicId = store.epicId(row);
+        int previousEpicRow = store.row(previousEpicId, TaskType.EPIC);
+        boolean rescan = false;
+        if (previousEpicRow >= 0) {
+            rescan = contribute(previousEpicRow, row, -1);
+            unlink(row);
+        }
+        unindex(row);
+        store.write(row, subtask);
+        index(row);
+        link(epicRow, row);
+        contribute(epicRow, row, 1);
+        if (previousEpicRow >= 0 && previousEpicRow != epicRow) {
+            applyRollup(previousEpicRow, rescan);
+            touch(TaskType.EPIC, previousEpicRow);
+            rescan = false;
+        }
+        applyRollup(epicRow, rescan);
+        touch(TaskType.SUBTASK, row);
+        touch(TaskType.EPIC, epicRow);
+        publish(TaskEvent.Action.UPDATED, TaskType.SUBTASK, subtask.getId());
+        if (previousEpicRow >= 0 && previousEpicId != subtask.getEpicId()) {
+            publish(TaskEvent.Action.UPDATED, TaskType.EPIC, previousEpicId);
+        }
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, subtask.getEpicId());
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        int row = store.row(id, TaskType.TASK);
+        if (row >= 0) {
+            unindex(row);
+            store.remove(id);
+            touch(TaskType.TASK, -1);
+            store.compactIfSparse();
+            publish(TaskEvent.Action.DELETED, TaskType.TASK, id);
+        }
+        historyManager.remove(id);
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        int row = store.row(id, TaskType.EPIC);
+        if (row < 0) {
+            return;
+        }
+        int[] removed = new int[epicCounts.get(id)[TOTAL]];
+        int count = 0;
+        for (int child = store.nextLink(row); child != id; ) {
+            int childRow = store.row(child);
+            int next = store.nextLink(childRow);
+            unindex(childRow);
+            store.remove(child);
+            historyManager.remove(child);
+            removed[count++] = child;
+            child = next;
+        }
+        store.remove(id);
+        epicCounts.remove(id);
+        historyManager.remove(id);
+        touch(TaskType.EPIC, -1);
+        touch(TaskType.SUBTASK, -1);
+        store.compactIfSparse();
+        publish(TaskEvent.Action.DELETED, TaskType.EPIC, id);
+        for (int i = 0; i < count; i++) {
+            publish(TaskEvent.Action.DELETED, TaskType.SUBTASK, removed[i]);
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        int row = store.row(id, TaskType.SUBTASK);
+        if (row < 0) {
+            return;
+        }
+        unindex(row);
+        int epicId = store.epicId(row);
+        int epicRow = store.row(epicId, TaskType.EPIC);
+        if (epicRow >= 0) {
+            boolean rescan = contribute(epicRow, row, -1);
+            unlink(row);
+            store.remove(id);
+            applyRollup(epicRow, rescan);
+            touch(TaskType.EPIC, epicRow);
+        } else {
+            store.remove(id);
+        }
+        historyManager.remove(id);
+        touch(TaskType.SUBTASK, -1);
+        store.compactIfSparse();
+        publish(TaskEvent.Action.DELETED, TaskType.SUBTASK, id);
+        if (epicRow >= 0) {
+            publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epicId);
+        }
+    }
+
+    @Override
+    public void deleteTasks() {
+        removeAll(TaskType.TASK);
+        touch(TaskType.TASK, -1);
+        store.compactIfSparse();
+        publish(TaskEvent.Action.CLEARED, TaskType.TASK, 0);
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        removeAll(TaskType.SUBTASK);
+        for (int id = 1; id <= store.maxId(); id++) {
+            int row = store.row(id, TaskType.EPIC);
+            if (row >= 0) {
+                store.setLinks(row, id, id);
+                epicCounts.put(id, new int[TOTAL + 1]);
+                applyRollup(row, false);
+                touch(TaskType.EPIC, row);
+            }
+        }
+        touch(TaskType.SUBTASK, -1);
+        touch(TaskType.EPIC, -1);
+        store.compactIfSparse();
+        publish(TaskEvent.Action.CLEARED, TaskType.SUBTASK, 0);
+        for (int id = 1; id <= store.maxId(); id++) {
+            if (store.row(id, TaskType.EPIC) >= 0) {
+                publish(TaskEvent.Action.UPDATED, TaskType.EPIC, id);
+            }
+        }
+    }
+
+    // Как и InMemoryTaskManager, подзадачи удалённых эпиков остаются на доске
+    @Override
+    public void deleteEpics() {
+        removeAll(TaskType.EPIC);
+        epicCounts.clear();
+        touch(TaskType.EPIC, -1);
+        store.compactIfSparse();
+        publish(TaskEvent.Action.CLEARED, TaskType.EPIC, 0);
+    }
+
+    @Override
+    public ArrayList<Subtask> getEpicSubtasks(int epicId) {
+        ArrayList<Subtask> result = new ArrayList<>();
+        int row = store.row(epicId, TaskType.EPIC);
+        if (row < 0) {
+            return result;
+        }
+        for (int child = store.nextLink(row); child != epicId; ) {
+            int childRow = store.row(child);
+            result.add((Subtask) store.materialize(childRow));
+            child = store.nextLink(childRow);
+        }
+        return result;
+    }
+
+    // История хранит копии на момент просмотра; отдаём текущее состояние тех же задач
+    @Override
+    public ArrayList<Task> getHistory() {
+        List<Task> viewed = historyManager.getHistory();
+        ArrayList<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            int row = store.row(task.getId());
+            if (row >= 0) {
+                result.add(store.materialize(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getVersion(TaskType type) {
+        return collectionVersions[type.ordinal()];
+    }
+
+    @Override
+    public long getVersion(TaskType type, int id) {
+        int row = store.row(id, type);
+        return row >= 0 ? store.version(row) : 0;
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private int generateId() {
+        return nextId++;
+    }
+
+    private void publish(TaskEvent.Action action, TaskType type, int id) {
+        listeners.publish(action, type, id, clock);
+    }
+
+    private void touch(TaskType type, int row) {
+        clock++;
+        collectionVersions[type.ordinal()] = clock;
+        if (row >= 0) {
+            store.setVersion(row, clock);
+        }
+    }
+
+    private <T extends Task> Optional<T> view(int id, TaskType type) {
+        int row = store.row(id, type);
+        if (row < 0) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        T task = (T) store.materialize(row);
+        historyManager.add(task);
+        return Optional.of(task);
+    }
+
+    private Task frozen(int row) {
+        Task task = store.materialize(row);
+        task.freeze();
+        return task;
+    }
+
+    // Прежний список упорядочен по id, как и проход по хранилищу, поэтому копии находятся одним проходом
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> frozenList(TaskType type) {
+        long version = collectionVersions[type.ordinal()];
+        List<T> cached = cachedList(type.ordinal(), version);
+        if (cached != null) {
+            return cached;
+        }
+        ListCache previousCache = lists[type.ordinal()];
+        List<T> previous = previousCache == null ? null : (List<T>) previousCache.list().get();
+        List<T> result = new ArrayList<>();
+        int i = 0;
+        for (int id = 1; id <= store.maxId(); id++) {
+            int row = store.row(id, type);
+            if (row < 0) {
+                continue;
+            }
+            while (previous != null && i < previous.size() && previous.get(i).getId() < id) {
+                i++;
+            }
+            if (previous != null && i < previous.size() && previous.get(i).getId() == id
+                    && previous.get(i).getVersion() == store.version(row)) {
+                result.add(previous.get(i));
+            } else {
+                result.add((T) frozen(row));
+            }
+        }
+        return cacheList(type.ordinal(), version, Collections.unmodifiableList(result));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> cachedList(int slot, long version) {
+        ListCache cache = lists[slot];
+        return cache != null && cache.version() == version ? (List<T>) cache.list().get() : null;
+    }
+
+    private <T extends Task> List<T> cacheList(int slot, long version, List<T> list) {
+        lists[slot] = new ListCache(version, new WeakReference<>(list));
+        return list;
+    }
+
+    // Просматривает id подряд, поэтому стоимость — O(limit + пропущенных id других типов)
+    @SuppressWarnings("unchecked")
+    private <T extends Task> Page<T> pageById(TaskType type, int limit, String cursor) {
+        PageCursor.checkLimit(limit);
+        List<T> items = new ArrayList<>();
+        int id = PageCursor.decodeId(cursor) + 1;
+        for (; id <= store.maxId() && items.size() < limit; id++) {
+            int row = store.row(id, type);
+            if (row >= 0) {
+                items.add((T) store.materialize(row));
+            }
+        }
+        for (; id <= store.maxId(); id++) {
+            if (store.row(id, type) >= 0) {
+                return new Page<>(items, PageCursor.ofId(items.get(items.size() - 1).getId()));
+            }
+        }
+        return new Page<>(items, null);
+    }
+
+    private ArrayList<Task> firstTasks(PrimitiveIterator.OfLong keys, long upperKey, int limit) {
+        ArrayList<Task> result = new ArrayList<>();
+        while (keys.hasNext() && result.size() < limit) {
+            long key = keys.nextLong();
+            if (key >= upperKey) {
+                break;
+            }
+            result.add(store.materialize(store.row(idOf(key))));
+        }
+        return result;
+    }
+
+    private void removeAll(TaskType type) {
+        for (int id = 1; id <= store.maxId(); id++) {
+            int row = store.row(id, type);
+            if (row >= 0) {
+                unindex(row);
+                store.remove(id);
+                historyManager.remove(id);
+            }
+        }
+    }
+
+    private void index(int row) {
+        long start = store.startMinute(row);
+        if (start == ColumnarTaskStore.NO_TIME) {
+            return;
+        }
+        long key = key(start, store.id(row));
+        schedule.add(key);
+        long end = store.endMinute(row);
+        if (end != ColumnarTaskStore.NO_TIME && end > start) {
+            busy.add(key);
+        }
+    }
+
+    private void unindex(int row) {
+        long start = store.startMinute(row);
+        if (start != ColumnarTaskStore.NO_TIME) {
+            long key = key(start, store.id(row));
+            schedule.remove(key);
+            busy.remove(key);
+        }
+    }
+
+    private void checkIntersection(Task task) {
+        long start = ColumnarTaskStore.toMinute(task.getStartTime());
+        if (start != ColumnarTaskStore.NO_TIME && (start < MIN_MINUTE || start > MAX_MINUTE)) {
+            throw new IllegalArgumentException("Время начала вне поддерживаемого диапазона: " + task.getStartTime());
+        }
+        long duration = task.getDuration() == null ? ColumnarTaskStore.NO_TIME : task.getDuration().toMinutes();
+        if (start == ColumnarTaskStore.NO_TIME || duration == ColumnarTaskStore.NO_TIME || duration <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        long end = start + duration;
+        long candidate = busy.lower(key(clamp(end), 0));
+        if (candidate != LongSortedSet.NONE && idOf(candidate) == task.getId()) {
+            candidate = busy.lower(candidate);
+        }
+        CONFLICT_CHECKS.recordSince(started);
+        if (candidate != LongSortedSet.NONE && store.endMinute(store.row(idOf(candidate))) > start) {
+            CONFLICTS.increment();
+            throw new TaskOverlapException("Задача пересекается по времени с другой задачей: "
+                    + store.materialize(store.row(idOf(candidate))));
+        }
+    }
+
+    // Подзадача добавляется в конец списка эпика, порядок — порядок добавления
+    private void link(int epicRow, int row) {
+        int epicId = store.id(epicRow);
+        int last = store.prevLink(epicRow);
+        int lastRow = store.row(last);
+        store.setLinks(row, last, epicId);
+        store.setLinks(lastRow, store.prevLink(lastRow), store.id(row));
+        store.setLinks(epicRow, store.id(row), store.nextLink(epicRow));
+    }
+
+    private void unlink(int row) {
+        int prevRow = store.row(store.prevLink(row));
+        int nextRow = store.row(store.nextLink(row));
+        store.setLinks(prevRow, store.prevLink(prevRow), store.nextLink(row));
+        store.setLinks(nextRow, store.prevLink(row), store.nextLink(nextRow));
+        store.setLinks(row, store.id(row), store.id(row));
+    }
+
+    // Вклад подзадачи в агрегаты эпика; sign — 1 или -1. Счётчики статусов и сумма длительностей
+    // меняются за O(1), начало и конец — тоже, пока не убирается крайнее значение. Тогда возвращается
+    // true, и applyRollup пересчитывает их проходом по подзадачам эпика
+    private boolean contribute(int epicRow, int row, int sign) {
+        int[] counts = epicCounts.get(store.id(epicRow));
+        TaskStatus status = store.status(row);
+        if (status != null) {
+            counts[status.ordinal()] += sign;
+        }
+        counts[TOTAL] += sign;
+        long duration = store.durationMinutes(row);
+        if (duration != ColumnarTaskStore.NO_TIME) {
+            store.setDurationMinutes(epicRow, store.durationMinutes(epicRow) + sign * duration);
+        }
+        long start = store.startMinute(row);
+        long end = store.endMinute(row);
+        long epicStart = store.startMinute(epicRow);
+        long epicEnd = store.endMinute(epicRow);
+        if (sign < 0) {
+            return (start != ColumnarTaskStore.NO_TIME && start == epicStart)
+                    || (end != ColumnarTaskStore.NO_TIME && end == epicEnd);
+        }
+        if (start != ColumnarTaskStore.NO_TIME && (epicStart == ColumnarTaskStore.NO_TIME || start < epicStart)) {
+            store.setStartMinute(epicRow, start);
+        }
+        if (end != ColumnarTaskStore.NO_TIME && (epicEnd == ColumnarTaskStore.NO_TIME || end > epicEnd)) {
+            store.setEndMinute(epicRow, end);
+        }
+        return false;
+    }
+
+    private void applyRollup(int epicRow, boolean rescanBounds) {
+        int[] counts = epicCounts.get(store.id(epicRow));
+        if (counts[TaskStatus.NEW.ordinal()] == counts[TOTAL]) {
+            store.setStatus(epicRow, TaskStatus.NEW);
+        } else if (counts[TaskStatus.DONE.ordinal()] == counts[TOTAL]) {
+            store.setStatus(epicRow, TaskStatus.DONE);
+        } else {
+            store.setStatus(epicRow, TaskStatus.IN_PROGRESS);
+        }
+        if (counts[TOTAL] == 0) {
+            store.setDurationMinutes(epicRow, 0);
+            store.setStartMinute(epicRow, ColumnarTaskStore.NO_TIME);
+            store.setEndMinute(epicRow, ColumnarTaskStore.NO_TIME);
+            return;
+        }
+        if (!rescanBounds) {
+            return;
+        }
+        int epicId = store.id(epicRow);
+        long start = ColumnarTaskStore.NO_TIME;
+        long end = ColumnarTaskStore.NO_TIME;
+        for (int child = store.nextLink(epicRow); child != epicId; ) {
+            int childRow = store.row(child);
+            long childStart = store.startMinute(childRow);
+            long childEnd = store.endMinute(childRow);
+            if (childStart != ColumnarTaskStore.NO_TIME && (start == ColumnarTaskStore.NO_TIME || childStart < start)) {
+                start = childStart;
+            }
+            if (childEnd != ColumnarTaskStore.NO_TIME && (end == ColumnarTaskStore.NO_TIME || childEnd > end)) {
+                end = childEnd;
+            }
+            child = store.nextLink(childRow);
+        }
+        store.setStartMinute(epicRow, start);
+        store.setEndMinute(epicRow, end);
+    }
+
+    // Ключ расписания: начало в старших 32 битах, id в младших — порядок TimeIntervalIndex.ORDER
+    private static long key(long minute, int id) {
+        return (minute << 32) | id;
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+
+    private static long clamp(long minute) {
+        return Math.max(MIN_MINUTE, Math.min(MAX_MINUTE, minute));
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+
+    @Override
+    protected ColumnarTaskManager createManager() {
+        return new ColumnarTaskManager();
+    }
+
+    // Менеджер отдаёт копии, поэтому эпик после каждого изменения читается заново
+    @Test
+    @Override
+    void shouldUpdateEpicTimeOnSubtaskChanges() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        Subtask s1 = new Subtask(0, "S1", "Desc", TaskStatus.NEW, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        Subtask s2 = new Subtask(0, "S2", "Desc", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 10, 28, 12, 0));
+        manager.createSubtask(s1);
+        manager.createSubtask(s2);
+
+        Epic saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 10, 0), saved.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 13, 0), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(90), saved.getDuration());
+        assertEquals(TaskStatus.IN_PROGRESS, saved.getStatus());
+
+        s1.setStartTime(LocalDateTime.of(2025, 10, 28, 14, 0));
+        s1.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(s1);
+        saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 12, 0), saved.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 14, 30), saved.getEndTime());
+        assertEquals(TaskStatus.DONE, saved.getStatus());
+
+        manager.deleteSubtaskById(s2.getId());
+        saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 14, 0), saved.getStartTime());
+        assertEquals(Duration.ofMinutes(30), saved.getDuration());
+    }
+
+    @Test
+    void shouldKeepRowsAndStringsConsistentAfterCompaction() {
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Task task = new Task(0, "Задача " + i, "Описание " + "x".repeat(i % 300), TaskStatus.NEW);
+            manager.createTask(task);
+            if (i % 10 == 0) {
+                kept.add(task.getId());
+            } else {
+                manager.deleteTaskById(task.getId());
+            }
+        }
+
+        List<Task> tasks = manager.getTasks();
+        assertEquals(kept.size(), tasks.size());
+        for (int i = 0; i < kept.size(); i++) {
+            assertEquals((int) kept.get(i), tasks.get(i).getId());
+            assertEquals("Задача " + (i * 10), tasks.get(i).getTitle());
+        }
+    }
+
+    @Test
+    void shouldMatchTreeSetUnderRandomOperations() {
+        LongSortedSet set = new LongSortedSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(20_000) - 10_000L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long probe = -10_001; probe <= 10_001; probe += 37) {
+            Long lower = expected.lower(probe);
+            assertEquals(lower == null ? LongSortedSet.NONE : lower, set.lower(probe));
+        }
+        List<Long> tail = new ArrayList<>();
+        set.from(0, false).forEachRemaining((long value) -> tail.add(value));
+        assertEquals(new ArrayList<>(expected.tailSet(0L, false)), tail);
+    }
+}
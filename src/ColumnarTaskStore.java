@@ -0,0 +1,348 @@
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+// Колоночное хранилище задач: каждое поле — отдельный массив примитивов, строка таблицы — индекс
+// в этих массивах. Названия и описания лежат вне кучи в StringArena. Объекты Task не хранятся:
+// materialize собирает независимую копию при каждом обращении. Выходит около 80 байт на задачу
+// плюс байты строк, и ни одного объекта, который сборщику мусора пришлось бы обходить.
+// Время хранится в минутах от эпохи (UTC), с той же точностью, что и длительность в JSON и CSV.
+// Строки удалённых задач освобождаются, а массивы уплотняются, когда свободных строк больше, чем занятых.
+// Не потокобезопасно.
+public class ColumnarTaskStore {
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final byte FREE = -1;
+    private static final byte NO_STATUS = -1;
+    private static final int NO_STRING = -1;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    // id → строка + 1; 0 — задачи нет. Индексируется по id, поэтому поиск — одно обращение к массиву
+    private int[] rowById = new int[MIN_CAPACITY];
+    private int maxId;
+
+    private int[] ids = new int[MIN_CAPACITY];
+    private byte[] types = new byte[MIN_CAPACITY];
+    private byte[] statuses = new byte[MIN_CAPACITY];
+    private int[] epicIds = new int[MIN_CAPACITY];
+    private long[] starts = new long[MIN_CAPACITY];
+    private long[] durations = new long[MIN_CAPACITY];
+    private long[] ends = new long[MIN_CAPACITY];
+    private long[] titleRefs = new long[MIN_CAPACITY];
+    private int[] titleLengths = new int[MIN_CAPACITY];
+    private long[] descriptionRefs = new long[MIN_CAPACITY];
+    private int[] descriptionLengths = new int[MIN_CAPACITY];
+    private long[] versions = new long[MIN_CAPACITY];
+    // Двусвязный список подзадач эпика по id; сам эпик — его заглавный узел:
+    // у эпика next — первая подзадача, prev — последняя
+    private int[] prevLinks = new int[MIN_CAPACITY];
+    private int[] nextLinks = new int[MIN_CAPACITY];
+
+    private StringArena arena = new StringArena();
+    private int rows;
+    private int liveRows;
+
+    public int size() {
+        return liveRows;
+    }
+
+    public int maxId() {
+        return maxId;
+    }
+
+    // Строка задачи или -1
+    public int row(int id) {
+        return id > 0 && id < rowById.length ? rowById[id] - 1 : -1;
+    }
+
+    // Строка задачи нужного типа или -1
+    public int row(int id, TaskType type) {
+        int row = row(id);
+        return row >= 0 && types[row] == type.ordinal() ? row : -1;
+    }
+
+    public int add(int id, TaskType type) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("id должен быть положительным: " + id);
+        }
+        if (row(id) >= 0) {
+            throw new IllegalArgumentException("Задача с id=" + id + " уже есть");
+        }
+        if (rows == ids.length) {
+            grow();
+        }
+        if (id >= rowById.length) {
+            rowById = Arrays.copyOf(rowById, Math.max(id + 1, rowById.length * 2));
+        }
+        int row = rows++;
+        ids[row] = id;
+        types[row] = (byte) type.ordinal();
+        statuses[row] = NO_STATUS;
+        epicIds[row] = 0;
+        starts[row] = NO_TIME;
+        durations[row] = NO_TIME;
+        ends[row] = NO_TIME;
+        titleLengths[row] = NO_STRING;
+        descriptionLengths[row] = NO_STRING;
+        versions[row] = 0;
+        prevLinks[row] = id;
+        nextLinks[row] = id;
+        rowById[id] = row + 1;
+        maxId = Math.max(maxId, id);
+        liveRows++;
+        return row;
+    }
+
+    public void remove(int id) {
+        int row = row(id);
+        if (row < 0) {
+            return;
+        }
+        freeString(titleLengths[row]);
+        freeString(descriptionLengths[row]);
+        types[row] = FREE;
+        rowById[id] = 0;
+        liveRows--;
+    }
+
+    // Вызывается между операциями: уплотнение меняет номера строк
+    public void compactIfSparse() {
+        if (rows > MIN_CAPACITY && liveRows < rows / 2) {
+            compactRows();
+        }
+        if (arena.needsCompaction()) {
+            compactStrings();
+        }
+    }
+
+    public TaskType type(int row) {
+        return TYPES[types[row]];
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public TaskStatus status(int row) {
+        return statuses[row] == NO_STATUS ? null : STATUSES[statuses[row]];
+    }
+
+    public void setStatus(int row, TaskStatus status) {
+        statuses[row] = status == null ? NO_STATUS : (byte) status.ordinal();
+    }
+
+    public int epicId(int row) {
+        return epicIds[row];
+    }
+
+    public void setEpicId(int row, int epicId) {
+        epicIds[row] = epicId;
+    }
+
+    public long startMinute(int row) {
+        return starts[row];
+    }
+
+    public void setStartMinute(int row, long minute) {
+        starts[row] = minute;
+    }
+
+    public long durationMinutes(int row) {
+        return durations[row];
+    }
+
+    public void setDurationMinutes(int row, long minutes) {
+        durations[row] = minutes;
+    }
+
+    // Конец интервала: для эпика — хранимое значение, для остальных — начало плюс длительность
+    public long endMinute(int row) {
+        if (types[row] == TaskType.EPIC.ordinal()) {
+            return ends[row];
+        }
+        return starts[row] == NO_TIME || durations[row] == NO_TIME ? NO_TIME : starts[row] + durations[row];
+    }
+
+    public void setEndMinute(int row, long minute) {
+        ends[row] = minute;
+    }
+
+    public long version(int row) {
+        return versions[row];
+    }
+
+    public void setVersion(int row, long version) {
+        versions[row] = version;
+    }
+
+    public int prevLink(int row) {
+        return prevLinks[row];
+    }
+
+    public int nextLink(int row) {
+        return nextLinks[row];
+    }
+
+    public void setLinks(int row, int prev, int next) {
+        prevLinks[row] = prev;
+        nextLinks[row] = next;
+    }
+
+    public void setTitle(int row, String title) {
+        freeString(titleLengths[row]);
+        titleLengths[row] = putString(title, titleRefs, row);
+    }
+
+    public void setDescription(int row, String description) {
+        freeString(descriptionLengths[row]);
+        descriptionLengths[row] = putString(description, descriptionRefs, row);
+    }
+
+    // Поля, общие для всех типов; статус и время эпика вычисляет менеджер
+    public void write(int row, Task task) {
+        setTitle(row, task.getTitle());
+        setDescription(row, task.getDescription());
+        if (task instanceof Epic) {
+            return;
+        }
+        setStatus(row, task.getStatus());
+        starts[row] = toMinute(task.getStartTime());
+        durations[row] = task.getDuration() == null ? NO_TIME : task.getDuration().toMinutes();
+        if (task instanceof Subtask subtask) {
+            epicIds[row] = subtask.getEpicId();
+        }
+    }
+
+    // Новый объект при каждом вызове: изменения копии хранилище не затрагивают
+    public Task materialize(int row) {
+        int id = ids[row];
+        String title = string(titleRefs[row], titleLengths[row]);
+        String description = string(descriptionRefs[row], descriptionLengths[row]);
+        Task task = switch (type(row)) {
+            case TASK -> new Task(id, title, description, status(row), duration(durations[row]), toTime(starts[row]));
+            case SUBTASK -> new Subtask(id, title, description, status(row), epicIds[row],
+                    duration(durations[row]), toTime(starts[row]));
+            case EPIC -> materializeEpic(row, id, title, description);
+        };
+        task.setVersion(versions[row]);
+        return task;
+    }
+
+    private Epic materializeEpic(int row, int id, String title, String description) {
+        Epic epic = new Epic(id, title, description);
+        epic.setStatus(status(row));
+        epic.setDuration(duration(durations[row]));
+        epic.setStartTime(toTime(starts[row]));
+        epic.setEndTime(toTime(ends[row]));
+        for (int child = nextLinks[row]; child != id; child = nextLinks[row(child)]) {
+            epic.addSubtaskId(child);
+        }
+        return epic;
+    }
+
+    public static long toMinute(LocalDateTime time) {
+        return time == null ? NO_TIME : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static long toMinuteCeiling(LocalDateTime time) {
+        long minute = toMinute(time);
+        return time.truncatedTo(ChronoUnit.MINUTES).equals(time) ? minute : minute + 1;
+    }
+
+    public static LocalDateTime toTime(long minute) {
+        return minute == NO_TIME ? null : LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static Duration duration(long minutes) {
+        return minutes == NO_TIME ? null : Duration.ofMinutes(minutes);
+    }
+
+    private String string(long ref, int length) {
+        return length == NO_STRING ? null : arena.get(ref, length);
+    }
+
+    private int putString(String value, long[] refs, int row) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        refs[row] = arena.put(utf8);
+        return utf8.length;
+    }
+
+    private void freeString(int length) {
+        if (length != NO_STRING) {
+            arena.free(length);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        types = Arrays.copyOf(types, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        epicIds = Arrays.copyOf(epicIds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        titleRefs = Arrays.copyOf(titleRefs, capacity);
+        titleLengths = Arrays.copyOf(titleLengths, capacity);
+        descriptionRefs = Arrays.copyOf(descriptionRefs, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        prevLinks = Arrays.copyOf(prevLinks, capacity);
+        nextLinks = Arrays.copyOf(nextLinks, capacity);
+    }
+
+    // Сдвигает занятые строки к началу с сохранением порядка
+    private void compactRows() {
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] == FREE) {
+                continue;
+            }
+            if (live != row) {
+                ids[live] = ids[row];
+                types[live] = types[row];
+                statuses[live] = statuses[row];
+                epicIds[live] = epicIds[row];
+                starts[live] = starts[row];
+                durations[live] = durations[row];
+                ends[live] = ends[row];
+                titleRefs[live] = titleRefs[row];
+                titleLengths[live] = titleLengths[row];
+                descriptionRefs[live] = descriptionRefs[row];
+                descriptionLengths[live] = descriptionLengths[row];
+                versions[live] = versions[row];
+                prevLinks[live] = prevLinks[row];
+                nextLinks[live] = nextLinks[row];
+                rowById[ids[live]] = live + 1;
+            }
+            live++;
+        }
+        rows = live;
+    }
+
+    // Переписывает живые строки в новую арену; старые буферы освободит сборщик мусора
+    private void compactStrings() {
+        StringArena previous = arena;
+        arena = new StringArena();
+        for (int row = 0; row < rows; row++) {
+            if (types[row] == FREE) {
+                continue;
+            }
+            titleRefs[row] = copy(previous, titleRefs[row], titleLengths[row]);
+            descriptionRefs[row] = copy(previous, descriptionRefs[row], descriptionLengths[row]);
+        }
+    }
+
+    private long copy(StringArena from, long ref, int length) {
+        return length == NO_STRING ? 0 : arena.put(from.bytes(ref, length));
+    }
+}
@@ -0,0 +1,436 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Потокобезопасная обёртка над любым TaskManager.
+// Общие для доски хранилища, счётчик id, индекс по времени и версии защищает одна блокировка lock:
+// чтения идут под разделяемой и не мешают друг другу, изменения — под эксклюзивной, поэтому проверка
+// пересечений и выдача id атомарны. Без блокировки берутся только полные списки над InMemoryTaskManager:
+// срез неизменяем и публикуется через volatile-поле.
+// Содержимое эпиков (свёртку с подзадачами, статусом и временем) защищают полосы epicStripes.
+// Если делегат — EpicScopedTaskManager и разрешает это, изменение подзадачи делится на две части:
+// общая проходит под эксклюзивной lock, а правка эпика — уже после её освобождения, только под полосой
+// эпика. Поэтому правки подзадач разных эпиков идут параллельно, а общая блокировка держится лишь на
+// проверку пересечений, выдачу id и обновление индексов. Читатель эпика берёт его полосу, ждёт
+// незаконченную правку и получает свою копию эпика; то, что видно без полос (подзадачи, расписание),
+// к этому моменту уже изменено.
+// Действия над всеми эпиками сразу (пересборка среза, удаление всех подзадач или эпиков, пачки)
+// берут все полосы. Порядок захвата всегда один: полосы по возрастанию номера, затем lock.
+// Над FileBackedTaskManager изменения целиком эксклюзивны и берут все полосы: записи журнала должны
+// идти в порядке изменений, а снимок доски может сниматься прямо посреди записи. Зато ожидание записи
+// на диск вынесено за пределы блокировок: потоки, меняющие разные эпики, не ждут чужой fsync,
+// а в режиме GROUP_COMMIT их записи попадают в одну пачку.
+public class ConcurrentTaskManager implements TaskManager {
+
+    // Степень двойки: номер полосы — младшие биты id эпика
+    private static final int EPIC_STRIPES = 64;
+
+    private final TaskManager delegate;
+    private final FileBackedTaskManager durable;
+    private final InMemoryTaskManager inMemory;
+    // Делегат, изменения подзадач которого делятся на общую часть и правку эпиков; иначе null
+    private final EpicScopedTaskManager epicScoped;
+    private final boolean sharedViews;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock[] epicStripes = new ReentrantLock[EPIC_STRIPES];
+
+    public ConcurrentTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        if (delegate instanceof FileBackedTaskManager fileBacked) {
+            fileBacked.setDeferredAcknowledgement(true);
+            this.durable = fileBacked;
+        } else {
+            this.durable = null;
+        }
+        this.inMemory = delegate instanceof InMemoryTaskManager manager ? manager : null;
+        // Просмотр меняет только историю; если она сама потокобезопасна и просмотры не пишутся
+        // на диск, просмотры идут под разделяемой блокировкой вместе с остальными чтениями
+        this.sharedViews = durable == null && delegate instanceof InMemoryTaskManager inMemory
+                && inMemory.isHistoryThreadSafe();
+        this.epicScoped = delegate instanceof EpicScopedTaskManager manager && manager.splitsSubtaskWrites()
+                ? manager : null;
+        for (int i = 0; i < EPIC_STRIPES; i++) {
+            epicStripes[i] = new ReentrantLock();
+        }
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return snapshot(BoardSnapshot::tasks, delegate::getTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return snapshot(BoardSnapshot::prioritized, delegate::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return snapshot(BoardSnapshot::epics, delegate::getEpics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return snapshot(BoardSnapshot::subtasks, delegate::getSubtasks);
+    }
+
+    @Override
+    public Page<Task> getTasks(int limit, String cursor) {
+        return read(() -> delegate.getTasks(limit, cursor));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasks(int limit, String cursor) {
+        return read(() -> delegate.getPrioritizedTasks(limit, cursor));
+    }
+
+    @Override
+    public Page<Epic> getEpics(int limit, String cursor) {
+        return readEpics(() -> delegate.getEpics(limit, cursor));
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(int limit, String cursor) {
+        return read(() -> delegate.getSubtasks(limit, cursor));
+    }
+
+    @Override
+    public ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> delegate.getTasksBetween(from, to, limit));
+    }
+
+    @Override
+    public ArrayList<Task> getTasksStartingFrom(LocalDateTime time, int limit) {
+        return read(() -> delegate.getTasksStartingFrom(time, limit));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, WorkingHours hours) {
+        return read(() -> delegate.findFreeSlot(after, duration, hours));
+    }
+
+    @Override
+    public Optional<Task> getTask(int id) {
+        return view(() -> delegate.getTask(id));
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        if (durable != null) {
+            return write(() -> delegate.getEpic(id));
+        }
+        lockEpics(id, 0);
+        try {
+            return sharedViews ? read(() -> delegate.getEpic(id)) : exclusive(() -> delegate.getEpic(id));
+        } finally {
+            unlockEpics(id, 0);
+        }
+    }
+
+    @Override
+    public Optional<Subtask> getSubtask(int id) {
+        return view(() -> delegate.getSubtask(id));
+    }
+
+    // Задачи и новый эпик не трогают содержимое существующих эпиков, полосы им не нужны
+    @Override
+    public void createTask(Task task) {
+        writeBoard(() -> delegate.createTask(task));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        writeBoard(() -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        if (epicScoped != null) {
+            writeSubtask(0, subtask.getEpicId(), () -> epicScoped.createSubtaskOnBoard(subtask));
+        } else {
+            write(() -> delegate.createSubtask(subtask));
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        writeBoard(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null || durable != null) {
+            write(() -> delegate.updateEpic(epic));
+        } else {
+            writeEpic(epic.getId(), () -> delegate.updateEpic(epic));
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (epicScoped != null && subtask != null) {
+            writeSubtask(subtask.getId(), subtask.getEpicId(), () -> epicScoped.updateSubtaskOnBoard(subtask));
+        } else {
+            write(() -> delegate.updateSubtask(subtask));
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        writeBoard(() -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        if (durable != null) {
+            write(() -> delegate.deleteEpicById(id));
+        } else {
+            writeEpic(id, () -> delegate.deleteEpicById(id));
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        if (epicScoped != null) {
+            writeSubtask(id, 0, () -> epicScoped.deleteSubtaskOnBoard(id));
+        } else {
+            write(() -> delegate.deleteSubtaskById(id));
+        }
+    }
+
+    @Override
+    public void deleteTasks() {
+        writeBoard(delegate::deleteTasks);
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        write(delegate::deleteSubtasks);
+    }
+
+    @Override
+    public void deleteEpics() {
+        write(delegate::deleteEpics);
+    }
+
+    @Override
+    public ArrayList<Subtask> getEpicSubtasks(int epicId) {
+        lockEpics(epicId, 0);
+        try {
+            return read(() -> delegate.getEpicSubtasks(epicId));
+        } finally {
+            unlockEpics(epicId, 0);
+        }
+    }
+
+    // История может содержать любые эпики, и отдаваемые пересчитываются
+    @Override
+    public ArrayList<Task> getHistory() {
+        return readEpics(delegate::getHistory);
+    }
+
+    // Вся пачка выполняется под всеми блокировками; work получает менеджер без блокировок,
+    // иначе повторный захват нереентерабельной StampedLock из work привёл бы к взаимной блокировке
+    @Override
+    public void inBatch(Consumer<TaskManager> work) {
+        write(() -> delegate.inBatch(work));
+    }
+
+    @Override
+    public long getVersion(TaskType type) {
+        return read(() -> delegate.getVersion(type));
+    }
+
+    @Override
+    public long getVersion(TaskType type, int id) {
+        return read(() -> delegate.getVersion(type, id));
+    }
+
+    // Слушатели хранятся в потокобезопасном списке делегата, блокировка не нужна. Уведомления приходят
+    // под эксклюзивной блокировкой изменения, раньше, чем запись на диск подтверждена
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        delegate.removeChangeListener(listener);
+    }
+
+    // Если после последней публикации среза доска не менялась, список берётся из него без блокировки;
+    // иначе срез пересобирается под всеми блокировками: пересборка пересчитывает отложенные эпики
+    // и копирует их содержимое
+    private <R> R snapshot(Function<BoardSnapshot, R> list, Supplier<R> fallback) {
+        if (inMemory != null) {
+            BoardSnapshot published = inMemory.publishedSnapshot();
+            return list.apply(published != null ? published : exclusiveAll(inMemory::snapshot));
+        }
+        return read(fallback);
+    }
+
+    // Просмотр задачи или подзадачи меняет только историю
+    private <R> R view(Supplier<R> action) {
+        if (durable != null) {
+            return write(action);
+        }
+        return sharedViews ? read(action) : exclusive(action);
+    }
+
+    // Чтение, которое не трогает содержимое эпиков или держит полосы нужных эпиков само
+    private <R> R read(Supplier<R> action) {
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Чтение, которое может пересчитать любые эпики: полосы не дают ему столкнуться с правкой эпика
+    // и с другим таким же чтением
+    private <R> R readEpics(Supplier<R> action) {
+        lockAllEpics();
+        try {
+            return read(action);
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    // Изменение подзадачи subtaskId (0 — новой), которая переходит в эпик targetEpicId (0 — удаляется).
+    // Эпик, где подзадача записана сейчас, узнаётся до захвата полос и сверяется уже под lock: если
+    // подзадачу успели перенести, всё отпускается и начинается заново
+    private void writeSubtask(int subtaskId, int targetEpicId, Supplier<EpicScopedTaskManager.EpicChange> onBoard) {
+        while (true) {
+            int listed = subtaskId == 0 ? 0 : read(() -> epicScoped.epicOfSubtask(subtaskId));
+            lockEpics(listed, targetEpicId);
+            try {
+                EpicScopedTaskManager.EpicChange change;
+                long stamp = lock.writeLock();
+                try {
+                    if (subtaskId != 0 && epicScoped.epicOfSubtask(subtaskId) != listed) {
+                        continue;
+                    }
+                    change = onBoard.get();
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                change.apply().run();
+                return;
+            } finally {
+                unlockEpics(listed, targetEpicId);
+            }
+        }
+    }
+
+    // Изменение одного эпика id вместе с общими структурами
+    private void writeEpic(int id, Runnable action) {
+        lockEpics(id, 0);
+        try {
+            exclusive(() -> {
+                action.run();
+                return null;
+            });
+        } finally {
+            unlockEpics(id, 0);
+        }
+    }
+
+    // Изменение, которое не трогает содержимое эпиков
+    private void writeBoard(Runnable action) {
+        if (durable != null) {
+            write(action);
+        } else {
+            exclusive(() -> {
+                action.run();
+                return null;
+            });
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Изменение под всеми блокировками; подтверждения записи на диск ждёт уже после их освобождения
+    private <R> R write(Supplier<R> action) {
+        R result = exclusiveAll(action);
+        if (durable != null) {
+            durable.awaitDurability();
+        }
+        return result;
+    }
+
+    private <R> R exclusiveAll(Supplier<R> action) {
+        lockAllEpics();
+        try {
+            return exclusive(action);
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    // Эксклюзивная lock без полос: нужные полосы вызывающий держит сам
+    private <R> R exclusive(Supplier<R> action) {
+        long stamp = lock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Полосы одного или двух эпиков, 0 — нет эпика. По возрастанию номера, как и lockAllEpics
+    private void lockEpics(int first, int second) {
+        int low = Math.min(stripe(first), stripe(second));
+        int high = Math.max(stripe(first), stripe(second));
+        if (low >= 0) {
+            epicStripes[low].lock();
+        }
+        if (high >= 0 && high != low) {
+            epicStripes[high].lock();
+        }
+    }
+
+    private void unlockEpics(int first, int second) {
+        int low = Math.min(stripe(first), stripe(second));
+        int high = Math.max(stripe(first), stripe(second));
+        if (high >= 0 && high != low) {
+            epicStripes[high].unlock();
+        }
+        if (low >= 0) {
+            epicStripes[low].unlock();
+        }
+    }
+
+    private static int stripe(int epicId) {
+        return epicId == 0 ? -1 : epicId & (EPIC_STRIPES - 1);
+    }
+
+    private void lockAllEpics() {
+        for (ReentrantLock epicLock : epicStripes) {
+            epicLock.lock();
+        }
+    }
+
+    private void unlockAllEpics() {
+        for (int i = EPIC_STRIPES - 1; i >= 0; i--) {
+            epicStripes[i].unlock();
+        }
+    }
+}
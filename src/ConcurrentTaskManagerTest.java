@@ -0,0 +1,373 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager());
+    }
+
+    @Test
+    void shouldKeepEpicInvariantsUnderParallelWrites() throws Exception {
+        int epicsCount = 8;
+        int subtasksPerEpic = 50;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < epicsCount; i++) {
+            Epic epic = new Epic(0, "Epic " + i, "Desc");
+            manager.createEpic(epic);
+            epics.add(epic);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(epicsCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Epic epic : epics) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < subtasksPerEpic; i++) {
+                    manager.createSubtask(new Subtask(0, "S" + i, "Desc", TaskStatus.DONE, epic.getId()));
+                    manager.getTasks();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(epicsCount * subtasksPerEpic, manager.getSubtasks().size());
+        for (Epic epic : epics) {
+            assertEquals(subtasksPerEpic, manager.getEpicSubtasks(epic.getId()).size());
+            assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    void shouldServeConsistentSnapshotsWhileWriting() throws Exception {
+        int pairs = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < pairs; i++) {
+                manager.inBatch(m -> {
+                    m.createTask(new Task(0, "A", "Desc", TaskStatus.NEW));
+                    m.createTask(new Task(0, "B", "Desc", TaskStatus.NEW));
+                });
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(pool.submit(() -> {
+                int seen = 0;
+                while (seen < pairs * 2) {
+                    List<Task> tasks = manager.getTasks();
+                    assertEquals(0, tasks.size() % 2, "Срез не должен видеть пачку наполовину");
+                    assertTrue(tasks.size() >= seen, "Срезы не должны откатываться назад");
+                    seen = tasks.size();
+                }
+            }));
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldApplyDeferredEpicRecalculationBeforeSharedReads() throws Exception {
+        int rounds = 300;
+        int subtaskCount = 10;
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        List<Subtask> subs = new ArrayList<>();
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask sub = new Subtask(0, "S" + i, "Desc", TaskStatus.NEW, epic.getId(), Duration.ofMinutes(1), null);
+            manager.createSubtask(sub);
+            subs.add(sub);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Future<?> writer = pool.submit(() -> {
+            for (int round = 2; round <= rounds; round++) {
+                Duration length = Duration.ofMinutes(round);
+                manager.inBatch(m -> {
+                    for (Subtask sub : subs) {
+                        sub.setDuration(length);
+                        m.updateSubtask(sub);
+                    }
+                });
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(pool.submit(() -> {
+                long last = 0;
+                while (last < (long) rounds * subtaskCount) {
+                    long total = manager.getEpics().get(0).getDuration().toMinutes();
+                    assertEquals(0, total % subtaskCount, "Эпик не должен видеть пачку наполовину");
+                    assertTrue(total >= last);
+                    assertEquals(subtaskCount, manager.getEpicSubtasks(epic.getId()).size());
+                    last = total;
+                }
+            }));
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldReadMonotonicVersionsWhileWriting() throws Exception {
+        int updates = 20_000;
+        Task task = new Task(0, "Polled", "Desc", TaskStatus.NEW);
+        manager.createTask(task);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < updates; i++) {
+                // Новые задачи растят хеш-индексы, пока читатели ищут в них версию
+                manager.createTask(new Task(0, "T" + i, "Desc", TaskStatus.NEW));
+                manager.updateTask(task);
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                long last = 0;
+                while (!writer.isDone()) {
+                    long version = manager.getVersion(TaskType.TASK, task.getId());
+                    assertTrue(version >= last, "Версия задачи не должна убывать");
+                    assertTrue(manager.getVersion(TaskType.TASK) >= version);
+                    last = version;
+                }
+            }));
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(manager.getVersion(TaskType.TASK, task.getId()),
+                ((InMemoryTaskManager) manager.getDelegate()).getVersion(TaskType.TASK, task.getId()));
+    }
+
+    @Test
+    void shouldKeepHandedOutEpicsUnchangedWhileWriting() throws Exception {
+        int rounds = 300;
+        int subtaskCount = 10;
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        List<Subtask> subs = new ArrayList<>();
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask sub = new Subtask(0, "S" + i, "Desc", TaskStatus.NEW, epic.getId(), Duration.ofMinutes(1), null);
+            manager.createSubtask(sub);
+            subs.add(sub);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<?> writer = pool.submit(() -> {
+            for (int round = 0; round < rounds; round++) {
+                TaskStatus status = round % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW;
+                Duration length = Duration.ofMinutes(round % 2 == 0 ? 2 : 1);
+                manager.inBatch(m -> {
+                    for (Subtask sub : subs) {
+                        sub.setStatus(status);
+                        sub.setDuration(length);
+                        m.updateSubtask(sub);
+                    }
+                });
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                while (!writer.isDone()) {
+                    Epic read = manager.getEpic(epic.getId()).orElseThrow();
+                    TaskStatus status = read.getStatus();
+                    Duration duration = read.getDuration();
+                    assertEquals(status == TaskStatus.DONE ? 2 * subtaskCount : subtaskCount, duration.toMinutes(),
+                            "Статус и время эпика должны быть из одного состояния");
+                    Thread.yield();
+                    // Пока читатель держит эпик, другой читатель пересчитывает свою копию, а не эту
+                    assertEquals(status, read.getStatus());
+                    assertEquals(duration, read.getDuration());
+                }
+            }));
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldHandOutEpicCopiesWithCurrentStatus() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        Subtask sub = new Subtask(0, "S", "Desc", TaskStatus.NEW, epic.getId());
+        manager.createSubtask(sub);
+
+        sub.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(sub);
+        Epic read = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(TaskStatus.DONE, read.getStatus());
+        // Наружу уходят копии: читатель может сериализовать свою, пока другой поток меняет эпик
+        assertNotSame(read, manager.getEpic(epic.getId()).orElseThrow());
+        assertNotSame(epic, read);
+
+        manager.inBatch(m -> {
+            sub.setStatus(TaskStatus.IN_PROGRESS);
+            m.updateSubtask(sub);
+            sub.setStatus(TaskStatus.NEW);
+            m.updateSubtask(sub);
+        });
+        assertEquals(TaskStatus.NEW, manager.getEpics().get(0).getStatus());
+        assertEquals(TaskStatus.NEW, manager.getEpic(epic.getId()).orElseThrow().getStatus());
+        assertEquals(TaskStatus.NEW, ((Epic) manager.getHistory().get(0)).getStatus());
+    }
+
+    @Test
+    void shouldEditOtherEpicsWhileOneEpicIsBeingEdited() throws Exception {
+        Epic slowEpic = new Epic(0, "Slow", "Desc");
+        Epic otherEpic = new Epic(0, "Other", "Desc");
+        manager.createEpic(slowEpic);
+        manager.createEpic(otherEpic);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Статус подзадачи читается, когда её вклад записывается в свёртку эпика, — правка эпика
+        // на этом и останавливается
+        Subtask slow = new Subtask(0, "Slow", "Desc", TaskStatus.DONE, slowEpic.getId()) {
+            @Override
+            public TaskStatus getStatus() {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getStatus();
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> slowWrite = pool.submit(() -> manager.createSubtask(slow));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            Future<?> otherWrites = pool.submit(() -> {
+                Subtask sub = new Subtask(0, "S", "Desc", TaskStatus.NEW, otherEpic.getId());
+                manager.createSubtask(sub);
+                sub.setStatus(TaskStatus.DONE);
+                manager.updateSubtask(sub);
+                assertEquals(TaskStatus.DONE, manager.getEpic(otherEpic.getId()).orElseThrow().getStatus());
+                assertEquals(List.of(sub), manager.getEpicSubtasks(otherEpic.getId()));
+                assertTrue(manager.getVersion(TaskType.SUBTASK, slow.getId()) > 0, "Общая часть медленной правки уже видна");
+            });
+            otherWrites.get(5, TimeUnit.SECONDS);
+            assertFalse(slowWrite.isDone());
+        } finally {
+            release.countDown();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(slow), manager.getEpicSubtasks(slowEpic.getId()));
+        assertEquals(TaskStatus.DONE, manager.getEpic(slowEpic.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfConcurrentlyConflictingTasks() throws Exception {
+        int threads = 16;
+        LocalDateTime start = LocalDateTime.of(2025, 10, 28, 10, 0);
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                ready.countDown();
+                ready.await();
+                try {
+                    manager.createTask(new Task(0, "T", "Desc", TaskStatus.NEW, Duration.ofMinutes(30), start));
+                } catch (IllegalArgumentException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1, manager.getPrioritizedTasks().size());
+        assertEquals(threads - 1, conflicts.get());
+    }
+
+    @Test
+    void shouldWaitForDurabilityOutsideLockWithGroupCommit() throws Exception {
+        File file = File.createTempFile("tasks", ".csv");
+        file.deleteOnExit();
+        FileBackedTaskManager.journalFileFor(file).deleteOnExit();
+        FileBackedTaskManager fileBacked = new FileBackedTaskManager(file, PersistenceSettings.defaults()
+                .withMode(PersistenceMode.JOURNAL)
+                .withDurability(DurabilityMode.GROUP_COMMIT));
+        ConcurrentTaskManager concurrent = new ConcurrentTaskManager(fileBacked);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    concurrent.createTask(new Task(0, "T", "Desc", TaskStatus.NEW));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        fileBacked.close();
+
+        assertEquals(100, FileBackedTaskManager.loadFromFile(file).getTasks().size());
+    }
+
+    @Test
+    void shouldHandleSubscriptionOverflowOnceUnderConcurrentNotifications() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int round = 0; round < 200; round++) {
+            InMemoryTaskManager board = new InMemoryTaskManager();
+            AtomicInteger overflows = new AtomicInteger();
+            ChangeSubscription subscription = ChangeSubscription.subscribe(board, 1, overflows::incrementAndGet);
+            // Буфер уже заполнен: каждое из одновременных уведомлений переполняет подписку
+            subscription.onChange(new TaskEvent(TaskEvent.Action.CREATED, TaskType.TASK, 100, 0));
+            CyclicBarrier start = new CyclicBarrier(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int id = t + 1;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    subscription.onChange(new TaskEvent(TaskEvent.Action.CREATED, TaskType.TASK, id, id));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(subscription.isOverflowed());
+            assertEquals(1, overflows.get(), "Обработка переполнения должна выполниться ровно один раз");
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,9 @@
+public enum DurabilityMode {
+    // Каждое изменение записывается и сбрасывается на диск (fsync) до возврата из метода
+    SYNC,
+    // Изменения, пришедшие в пределах окна, пишутся одной пачкой с одним fsync;
+    // вызывающий поток ждёт, пока его пачка не окажется на диске
+    GROUP_COMMIT,
+    // Запись в фоне: метод возвращается сразу, пачки пишутся по истечении окна
+    ASYNC
+}
@@ -1,12 +1,13 @@
-import java.util.ArrayList;
+import com.google.gson.annotations.JsonAdapter;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.Map;
 
 public class Epic extends Task {
-    private final ArrayList<Integer> subtaskIds = new ArrayList<>();
+    // Список подзадач для читателей и JSON. Менеджер его не ведёт, а заполняет в копиях, которые отдаёт:
+    // единственный индекс подзадач эпика в InMemoryTaskManager — свёртка эпика
+    @JsonAdapter(IntLinkedSet.GsonAdapter.class)
+    private IntLinkedSet subtaskIds = new IntLinkedSet();
     private LocalDateTime endTime;
 
     public Epic(int id, String title, String description) {
@@ -14,74 +15,62 @@ public class Epic extends Task {
         this.endTime = null;
     }
 
-    public ArrayList<Integer> getSubtaskIds() {
+    // Копия изменяемая, даже если исходный эпик взят из снимка
+    public Epic(Epic other) {
+        super(other);
+        other.ids().forEach(ids()::add);
+        this.endTime = other.getEndTime();
+    }
+
+    // Копия id подзадач в порядке добавления
+    public int[] getSubtaskIds() {
+        return ids().toArray();
+    }
+
+    // Gson создаёт объекты без вызова конструктора, и поле может остаться null
+    private IntLinkedSet ids() {
+        if (subtaskIds == null) {
+            subtaskIds = new IntLinkedSet();
+        }
         return subtaskIds;
     }
 
     public boolean addSubtask(Subtask subtask) {
+        checkMutable();
         if (subtask == null) {
             return false;
         }
         if (subtask.getId() == this.getId()) {
             return false;
         }
-        if (!subtaskIds.contains(subtask.getId())) {
-            subtaskIds.add(subtask.getId());
-            return true;
-        }
-        return false;
-    }
-
-    public void removeSubtask(int subtaskId) {
-        subtaskIds.remove(Integer.valueOf(subtaskId));
-    }
-
-    public void clearSubtasks() {
-        subtaskIds.clear();
+        return ids().add(subtask.getId());
     }
 
-    public void recalculateTimeAndDuration(Map<Integer, Subtask> allSubtasksMap) {
-        ArrayList<Subtask> subtasks = subtaskIds.stream()
-                .map(allSubtasksMap::get) // получаем Subtask по id
-                .filter(Objects::nonNull)
-                .collect(Collectors.toCollection(ArrayList::new));
-
-
-        setDuration(subtasks.stream()
-                .map(Subtask::getDuration)
-                .filter(Objects::nonNull)
-                .reduce(Duration.ZERO, Duration::plus));
-
-        setStartTime(subtasks.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null));
-
-        if (subtasks.isEmpty()) {
-            this.endTime = null;
-            return;
+    // Для хранилищ, которые собирают эпик из id подзадач, не имея самих объектов
+    void addSubtaskId(int subtaskId) {
+        checkMutable();
+        if (subtaskId != getId()) {
+            ids().add(subtaskId);
         }
-
-        this.endTime = subtasks.stream()
-                .map(Subtask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
     }
 
-    @Override
-    public Duration getDuration() {
-        return super.getDuration();
+    public void removeSubtask(int subtaskId) {
+        checkMutable();
+        ids().remove(subtaskId);
     }
 
-    @Override
-    public LocalDateTime getStartTime() {
-        return super.getStartTime();
+    public void clearSubtasks() {
+        checkMutable();
+        ids().clear();
     }
 
     @Override
     public LocalDateTime getEndTime() {
         return endTime;
     }
+
+    public void setEndTime(LocalDateTime endTime) {
+        checkMutable();
+        this.endTime = endTime;
+    }
 }
@@ -0,0 +1,156 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+// Агрегаты эпика, которые обновляются по дельте одной подзадачи, а не пересчитываются целиком:
+// счётчики статусов, сумма длительностей и мультимножества начал и окончаний.
+// Вклад каждой подзадачи запоминается, поэтому старое значение можно вычесть,
+// даже если объект подзадачи уже изменили до вызова update.
+// Изменения копятся и учитываются в агрегатах при первом чтении: повторные правки одной подзадачи
+// между чтениями схлопываются в одну.
+public class EpicRollup {
+
+    private record Contribution(TaskStatus status, Duration duration, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static final Contribution REMOVED = new Contribution(null, null, null, null);
+
+    private final IntObjectHashMap<Contribution> contributions = new IntObjectHashMap<>();
+    // id подзадачи → новый вклад или REMOVED; создаётся при первом изменении
+    private IntObjectHashMap<Contribution> pending;
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    public void put(Subtask subtask) {
+        defer(subtask.getId(), new Contribution(subtask.getStatus(), subtask.getDuration(),
+                subtask.getStartTime(), subtask.getEndTime()));
+    }
+
+    public void remove(int subtaskId) {
+        defer(subtaskId, REMOVED);
+    }
+
+    public void clear() {
+        pending = null;
+        contributions.clear();
+        Arrays.fill(statusCounts, 0);
+        starts.clear();
+        ends.clear();
+        totalDuration = Duration.ZERO;
+    }
+
+    public int size() {
+        settle();
+        return contributions.size();
+    }
+
+    // Подзадачи эпика в порядке добавления — индекс родитель → дети
+    public int[] getSubtaskIds() {
+        settle();
+        return contributions.keys();
+    }
+
+    public TaskStatus getStatus() {
+        settle();
+        int size = contributions.size();
+        if (statusCounts[TaskStatus.NEW.ordinal()] == size) {
+            return TaskStatus.NEW;
+        }
+        if (statusCounts[TaskStatus.DONE.ordinal()] == size) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    public Duration getDuration() {
+        settle();
+        return totalDuration;
+    }
+
+    public LocalDateTime getStartTime() {
+        settle();
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    public LocalDateTime getEndTime() {
+        settle();
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    // Статус, время и подзадачи из свёртки — в копию эпика, которую менеджер отдаёт читателю
+    public void applyTo(Epic epic) {
+        epic.clearSubtasks();
+        for (int subtaskId : getSubtaskIds()) {
+            epic.addSubtaskId(subtaskId);
+        }
+        epic.setStatus(getStatus());
+        epic.setDuration(getDuration());
+        epic.setStartTime(getStartTime());
+        epic.setEndTime(getEndTime());
+    }
+
+    private void defer(int subtaskId, Contribution contribution) {
+        if (pending == null) {
+            pending = new IntObjectHashMap<>();
+        }
+        pending.put(subtaskId, contribution);
+    }
+
+    // Учитывает накопленные изменения сразу, не дожидаясь чтения
+    void settle() {
+        IntObjectHashMap<Contribution> changes = pending;
+        if (changes == null) {
+            return;
+        }
+        pending = null;
+        changes.forEachKey(id -> {
+            Contribution next = changes.get(id);
+            if (next == REMOVED) {
+                subtract(contributions.remove(id));
+            } else {
+                subtract(contributions.put(id, next));
+                add(next);
+            }
+        });
+    }
+
+    private void add(Contribution contribution) {
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]++;
+        }
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.plus(contribution.duration());
+        }
+        increment(starts, contribution.start());
+        increment(ends, contribution.end());
+    }
+
+    private void subtract(Contribution contribution) {
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]--;
+        }
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.minus(contribution.duration());
+        }
+        decrement(starts, contribution.start());
+        decrement(ends, contribution.end());
+    }
+
+    private static void increment(TreeMap<LocalDateTime, Integer> multiset, LocalDateTime key) {
+        if (key != null) {
+            multiset.merge(key, 1, Integer::sum);
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> multiset, LocalDateTime key) {
+        if (key != null) {
+            multiset.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+// Менеджер, который делит изменение подзадачи на две части. Первая, в методе *OnBoard, меняет общее для
+// доски: id, хранилища, индекс по времени, версии, историю — и рассылает уведомления. Вторая, apply
+// из возвращённого EpicChange, меняет только содержимое эпиков epicIds. ConcurrentTaskManager выполняет
+// первую под общей блокировкой, а вторую — только под блокировками этих эпиков, так что правки подзадач
+// разных эпиков идут параллельно. Сам менеджер в createSubtask, updateSubtask и deleteSubtaskById
+// выполняет обе части подряд.
+public interface EpicScopedTaskManager extends TaskManager {
+
+    // Можно ли выполнять части по отдельности. Менеджер, которому после изменения нужна вся доска
+    // целиком (например, чтобы записать её на диск), возвращает false, и обёртка выполняет
+    // изменения подзадач под всеми блокировками сразу
+    boolean splitsSubtaskWrites();
+
+    // Эпик, в списке которого записана подзадача id; 0 — если такой подзадачи нет
+    int epicOfSubtask(int id);
+
+    EpicChange createSubtaskOnBoard(Subtask subtask);
+
+    EpicChange updateSubtaskOnBoard(Subtask subtask);
+
+    EpicChange deleteSubtaskOnBoard(int id);
+
+    record EpicChange(int[] epicIds, Runnable apply) {
+        public static final EpicChange NONE = new EpicChange(new int[0], () -> {
+        });
+    }
+}
@@ -5,7 +5,6 @@ import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,7 +28,11 @@ public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
                     handleGet(h, path);
                     break;
                 case "POST":
-                    handlePost(h);
+                    if (path.equals("/epics/batch")) {
+                        importNdjson(h, gson, manager, Epic.class, TaskManager::createEpic);
+                    } else {
+                        handlePost(h);
+                    }
                     break;
                 case "DELETE":
                     handleDelete(h, path);
@@ -48,15 +51,26 @@ public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
 
         try {
             if (parts.length == 2) {
+                if (sendNotModifiedIfMatches(h, "epics", manager.getVersion(TaskType.EPIC))) {
+                    return;
+                }
+                if (sendPageIfRequested(h, gson, manager::getEpics)) {
+                    return;
+                }
                 List<Epic> epics = manager.getEpics();
-                sendText(h, gson.toJson(epics), 200);
+                sendJson(h, gson, epics, 200);
 
             } else if (parts.length == 3) {
                 int id = Integer.parseInt(parts[2]);
+                long version = manager.getVersion(TaskType.EPIC, id);
+                // Просмотр попадает в историю и тогда, когда клиенту хватит 304
                 Optional<Epic> epicOpt = manager.getEpic(id);
 
                 if (epicOpt.isPresent()) {
-                    sendText(h, gson.toJson(epicOpt.get()), 200);
+                    if (sendNotModifiedIfMatches(h, "epic-" + id, version)) {
+                        return;
+                    }
+                    sendJson(h, gson, epicOpt.get(), 200);
                 } else {
                     sendNotFound(h);
                 }
@@ -66,14 +80,8 @@ public class EpicsHandler extends BaseHttpHandler implements HttpHandler {
                 Optional<Epic> epicOpt = manager.getEpic(id);
 
                 if (epicOpt.isPresent()) {
-                    Epic epic = epicOpt.get();
-                    List<Subtask> subtasks = new ArrayList<>();
-
-                    for (Integer subId : epic.getSubtaskIds()) {
-                        manager.getSubtask(subId).ifPresent(subtasks::add);
-                    }
-
-                    sendText(h, gson.toJson(subtasks), 200);
+                    List<Subtask> subtasks = manager.getEpicSubtasks(id);
+                    sendJson(h, gson, subtasks, 200);
                 } else {
                     sendNotFound(h);
                 }
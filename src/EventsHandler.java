@@ -0,0 +1,169 @@
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// GET /events — поток Server-Sent Events об изменениях доски вместо опроса списков:
+//   id: <версия доски>
+//   event: created | updated | deleted | cleared
+//   data: {"action":"CREATED","type":"TASK","id":5,"version":42}
+// У каждого подписчика свой буфер на bufferSize событий (см. ChangeSubscription). Клиент, который
+// не успевает читать, получает событие overflow и отключается; после переподключения ему нужно
+// перечитать списки — пропущенные события не хранятся. Если клиент перестал читать совсем и поток
+// подписчика завис на записи в сокет, соединение закрывается принудительно (см. abort).
+// Пока клиент подписан, запрос занимает поток обработки, поэтому число подписчиков ограничено,
+// а сверх него отвечаем 503
+public class EventsHandler extends BaseHttpHandler implements HttpHandler {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_MAX_SUBSCRIBERS = 10_000;
+    // Комментарий раз в heartbeat не даёт прокси закрыть молчащее соединение и обнаруживает ушедших клиентов
+    public static final Duration DEFAULT_HEARTBEAT = Duration.ofSeconds(15);
+    // Сколько после переполнения ждать, пока поток подписчика сам отправит overflow и завершится
+    private static final Duration OVERFLOW_GRACE = Duration.ofSeconds(1);
+
+    // Строка data должна быть однострочной, поэтому события пишутся без форматирования
+    private static final Gson EVENT_GSON = new Gson();
+    private static final Metrics.Counter OVERFLOWS = Metrics.global().counter(
+            "kanban_sse_overflow_disconnects_total", "Число подписчиков, отключённых из-за переполнения буфера");
+    // Подписчики всех обработчиков процесса: величина регистрируется один раз и не держит обработчики
+    private static final AtomicInteger ACTIVE_SUBSCRIBERS = new AtomicInteger();
+
+    static {
+        Metrics.global().gauge("kanban_sse_subscribers", "Число подписчиков потока событий", ACTIVE_SUBSCRIBERS::get);
+    }
+
+    private final TaskManager manager;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration heartbeat;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public EventsHandler(TaskManager manager) {
+        this(manager, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_SUBSCRIBERS, DEFAULT_HEARTBEAT);
+    }
+
+    public EventsHandler(TaskManager manager, int bufferSize, int maxSubscribers, Duration heartbeat) {
+        if (bufferSize <= 0 || maxSubscribers <= 0) {
+            throw new IllegalArgumentException("Размер буфера и число подписчиков должны быть положительными");
+        }
+        if (heartbeat.isNegative() || heartbeat.isZero()) {
+            throw new IllegalArgumentException("Период heartbeat должен быть положительным: " + heartbeat);
+        }
+        this.manager = manager;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeat = heartbeat;
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        if (!h.getRequestMethod().equals("GET")) {
+            sendText(h, "{\"error\":\"Invalid method\"}", 405);
+            return;
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            sendText(h, "{\"error\":\"Too many subscribers\"}", 503);
+            return;
+        }
+        ACTIVE_SUBSCRIBERS.incrementAndGet();
+        CountDownLatch finished = new CountDownLatch(1);
+        // Подписка оформляется до отправки заголовков: получив ответ, клиент не пропустит изменений
+        ChangeSubscription subscription = ChangeSubscription.subscribe(manager, bufferSize,
+                () -> onOverflow(h, finished));
+        try (subscription) {
+            h.getResponseHeaders().add("Content-Type", "text/event-stream;charset=utf-8");
+            h.getResponseHeaders().add("Cache-Control", "no-cache");
+            h.sendResponseHeaders(200, 0);
+            Writer out = new BufferedWriter(new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8));
+            out.write(": subscribed\n\n");
+            out.flush();
+            stream(subscription, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // IOException (клиент ушёл, переполнение или abort) уходит в HttpServer, и тот закрывает соединение.
+            // После переполнения обычный close не вызывается: дописывая завершающий чанк, он завис бы
+            // на сокете клиента, который перестал читать
+            finished.countDown();
+            subscribers.decrementAndGet();
+            ACTIVE_SUBSCRIBERS.decrementAndGet();
+            if (!subscription.isOverflowed()) {
+                h.close();
+            }
+        }
+    }
+
+    // Вызывается в потоке изменения доски, поэтому ожидание уходит в отдельный виртуальный поток.
+    // Если поток подписчика за OVERFLOW_GRACE не завершился, он завис на записи, и соединение закрывается снаружи
+    private static void onOverflow(HttpExchange h, CountDownLatch finished) {
+        OVERFLOWS.increment();
+        Thread.ofVirtual().name("kanban-sse-watchdog").start(() -> {
+            try {
+                if (!finished.await(OVERFLOW_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+                    abort(h);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Закрывает соединение, на записи в которое завис поток подписчика. Обычный h.close() сначала дописал бы
+    // завершающий чанк и завис бы на том же сокете, поэтому поток ответа подменяется заглушкой, закрытие
+    // которой падает: тогда HttpServer закрывает само соединение, и зависшая запись завершается с IOException
+    private static void abort(HttpExchange h) {
+        h.setStreams(null, new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Подписчик отключён");
+            }
+
+            @Override
+            public void close() throws IOException {
+                throw new IOException("Подписчик отключён");
+            }
+        });
+        h.close();
+    }
+
+    private void stream(ChangeSubscription subscription, Writer out) throws IOException, InterruptedException {
+        while (!subscription.isOverflowed()) {
+            TaskEvent event = subscription.poll(heartbeat);
+            if (event == null) {
+                if (!subscription.isOverflowed()) {
+                    out.write(": keep-alive\n\n");
+                    out.flush();
+                }
+                continue;
+            }
+            // Всё, что успело накопиться, уходит одной отправкой
+            do {
+                write(out, event);
+                event = subscription.poll();
+            } while (event != null);
+            out.flush();
+        }
+        out.write("event: overflow\ndata: {}\n\n");
+        out.flush();
+        throw new IOException("Подписчик отключён: буфер событий переполнен");
+    }
+
+    private static void write(Writer out, TaskEvent event) throws IOException {
+        out.write("id: " + event.version() + "\n");
+        out.write("event: " + event.action().name().toLowerCase(Locale.ROOT) + "\n");
+        out.write("data: " + EVENT_GSON.toJson(event) + "\n\n");
+    }
+}
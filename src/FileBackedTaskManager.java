@@ -1,156 +1,511 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
 
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+
+    private static final Metrics.Histogram RENDERS = Metrics.global().histogram(
+            "kanban_snapshot_render_duration_seconds", "Время сборки контрольной точки в памяти");
+    private static final Metrics.Histogram SNAPSHOT_WRITES = Metrics.global().histogram(
+            "kanban_snapshot_write_duration_seconds", "Время записи контрольной точки на диск с fsync");
+    private static final Metrics.Histogram JOURNAL_WRITES = Metrics.global().histogram(
+            "kanban_journal_write_duration_seconds", "Время записи пачки журнала на диск с fsync");
+    private static final Metrics.Histogram LOADS = Metrics.global().histogram(
+            "kanban_load_duration_seconds", "Время загрузки доски из файла и журнала");
+    private static final Metrics.Counter COMPACTIONS = Metrics.global().counter(
+            "kanban_compactions_total", "Число сжатий журнала в контрольную точку");
+    private static final Metrics.Histogram CHECKPOINT_WRITES = Metrics.global().histogram(
+            "kanban_checkpoint_write_duration_seconds", "Время сжатия и записи контрольной точки с fsync");
+
     private final File file;
+    private final TaskJournal journal;
+    private final PersistenceSettings settings;
+    private final GroupCommitWriter<String> journalWriter;
+    private final GroupCommitWriter<byte[]> snapshotWriter;
+    private final CheckpointStore checkpoints;
+    // Фоновая запись периодических контрольных точек; null, если они выключены
+    private final GroupCommitWriter<byte[]> checkpointWriter;
+    private long lastCheckpointNanos = System.nanoTime();
+    private boolean checkpointDue;
+    private final ThreadLocal<CompletableFuture<Void>> pendingAck = new ThreadLocal<>();
+    private volatile boolean deferredAcknowledgement;
+    private int journalRecords;
+    private boolean restoring;
+    private boolean batching;
+    private boolean batchDirty;
+    private final List<String> batchRecords = new ArrayList<>();
 
     public FileBackedTaskManager(File file) {
+        this(file, PersistenceSettings.defaults());
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode) {
+        this(file, PersistenceSettings.defaults().withMode(mode));
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, int compactionThreshold) {
+        this(file, PersistenceSettings.defaults().withMode(mode).withCompactionThreshold(compactionThreshold));
+    }
+
+    public FileBackedTaskManager(File file, PersistenceSettings settings) {
         this.file = file;
+        this.settings = settings;
+        this.journal = settings.getMode() == PersistenceMode.JOURNAL ? new TaskJournal(journalFileFor(file)) : null;
+        if (journal != null) {
+            this.journalWriter = new GroupCommitWriter<>(settings.getDurability(), settings.getGroupCommitWindow(),
+                    this::writeJournalBatch);
+            this.snapshotWriter = null;
+        } else {
+            this.journalWriter = null;
+            this.snapshotWriter = new GroupCommitWriter<>(settings.getDurability(), settings.getGroupCommitWindow(), this::writeLatestSnapshot);
+        }
+        this.checkpoints = new CheckpointStore(file, settings.getCheckpointRetention());
+        this.checkpointWriter = settings.getCheckpointInterval().isZero() ? null
+                : new GroupCommitWriter<>(DurabilityMode.ASYNC, Duration.ZERO, this::writeLatestCheckpoint);
+    }
+
+    public static File journalFileFor(File file) {
+        return new File(file.getPath() + ".journal");
+    }
+
+    public PersistenceSettings getSettings() {
+        return settings;
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return settings.getMode();
+    }
+
+    // Записи журнала, ещё не сжатые в контрольную точку
+    public int getJournalRecords() {
+        return journalRecords;
     }
 
     @Override
     public void createTask(Task task) {
         super.createTask(task);
-        save();
+        persist(() -> "C," + toString(task));
     }
 
     @Override
     public void createEpic(Epic epic) {
         super.createEpic(epic);
-        save();
+        persist(() -> "C," + toString(epic));
+    }
+
+    // Изменение подзадачи пишется в журнал целиком, а запись может снять снимок всей доски, поэтому
+    // по частям его не выполнить: записи журнала должны идти в порядке изменений
+    @Override
+    public boolean splitsSubtaskWrites() {
+        return false;
     }
 
     @Override
     public void createSubtask(Subtask subtask) {
         super.createSubtask(subtask);
-        save();
+        persist(() -> "C," + toString(subtask));
     }
 
     @Override
     public void restoreEpic(Epic epic) {
         super.restoreEpic(epic);
-        save();
+        persist(() -> "C," + toString(epic));
     }
 
     @Override
     public void restoreSubtask(Subtask subtask) {
         super.restoreSubtask(subtask);
-        save();
+        persist(() -> "C," + toString(subtask));
+    }
+
+    // Вне загрузки — как серия restore*: в журнал уходит запись на каждую задачу, эпики раньше подзадач,
+    // а контрольная точка пишется один раз
+    @Override
+    public void restoreAll(Collection<? extends Task> loaded) {
+        super.restoreAll(loaded);
+        inBatch(manager -> {
+            loaded.stream().filter(task -> task instanceof Epic).forEach(task -> persist(() -> "C," + toString(task)));
+            loaded.stream().filter(task -> !(task instanceof Epic)).forEach(task -> persist(() -> "C," + toString(task)));
+        });
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        persist(() -> "U," + toString(task));
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persist(() -> "U," + toString(epic));
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        persist(() -> "U," + toString(subtask));
     }
 
     @Override
     public void deleteTaskById(int id) {
         super.deleteTaskById(id);
-        save();
+        persist(() -> "D," + TaskType.TASK + "," + id);
     }
 
     @Override
     public void deleteEpicById(int id) {
         super.deleteEpicById(id);
-        save();
+        persist(() -> "D," + TaskType.EPIC + "," + id);
     }
 
     @Override
     public void deleteSubtaskById(int id) {
         super.deleteSubtaskById(id);
-        save();
+        persist(() -> "D," + TaskType.SUBTASK + "," + id);
+    }
+
+    @Override
+    public void deleteTasks() {
+        super.deleteTasks();
+        persist(() -> "X," + TaskType.TASK);
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        super.deleteSubtasks();
+        persist(() -> "X," + TaskType.SUBTASK);
+    }
+
+    @Override
+    public void deleteEpics() {
+        super.deleteEpics();
+        persist(() -> "X," + TaskType.EPIC);
     }
 
     @Override
     public Optional<Task> getTask(int id) {
         Optional<Task> opt = super.getTask(id);
-        opt.ifPresent(task -> save());
+        opt.ifPresent(task -> persist(() -> "H," + id));
         return opt;
     }
 
     @Override
     public Optional<Epic> getEpic(int id) {
         Optional<Epic> opt = super.getEpic(id);
-        opt.ifPresent(epic -> save());
+        opt.ifPresent(epic -> persist(() -> "H," + id));
         return opt;
     }
 
     @Override
     public Optional<Subtask> getSubtask(int id) {
         Optional<Subtask> opt = super.getSubtask(id);
-        opt.ifPresent(sub -> save());
+        opt.ifPresent(sub -> persist(() -> "H," + id));
         return opt;
     }
 
+    // Внутри пачки изменения только копятся: снимок пишется один раз, записи журнала уходят одним fsync
+    @Override
+    public void inBatch(Consumer<TaskManager> work) {
+        if (batching) {
+            work.accept(this);
+            return;
+        }
+        batching = true;
+        try {
+            work.accept(this);
+        } finally {
+            batching = false;
+            persistBatch();
+        }
+    }
+
+    // Записывает контрольную точку (полный CSV) и очищает журнал
+    public void compact() {
+        COMPACTIONS.increment();
+        flush();
+        writeSnapshot(renderSnapshot());
+        if (journal != null) {
+            journal.truncate();
+            journalRecords = 0;
+        }
+    }
+
+    // Пишет сжатую контрольную точку со старыми точками по ротации и дожидается записи
+    public void checkpoint() {
+        byte[] content = renderSnapshot();
+        if (checkpointWriter == null) {
+            writeCheckpoint(content);
+            checkpointDue = false;
+            return;
+        }
+        submitCheckpoint(content);
+        checkpointWriter.flush();
+    }
+
+    // Контрольные точки от новой к старой
+    public List<File> getCheckpoints() {
+        return checkpoints.list();
+    }
+
+    // При отложенном подтверждении методы возвращаются сразу после постановки записи в очередь,
+    // а ждать её попадания на диск нужно через awaitDurability() — например, после снятия блокировки
+    public void setDeferredAcknowledgement(boolean deferredAcknowledgement) {
+        this.deferredAcknowledgement = deferredAcknowledgement;
+    }
+
+    public void awaitDurability() {
+        CompletableFuture<Void> ack = pendingAck.get();
+        if (ack != null) {
+            pendingAck.remove();
+            GroupCommitWriter.await(ack);
+        }
+    }
+
+    // Дожидается записи всех отложенных изменений
+    public void flush() {
+        pendingWriter().flush();
+    }
+
+    public void close() {
+        pendingWriter().close();
+        if (checkpointWriter != null) {
+            if (checkpointDue) {
+                submitCheckpoint(renderSnapshot());
+            }
+            checkpointWriter.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     public static FileBackedTaskManager loadFromFile(File file) {
-        if (file == null || !file.exists() || !file.canRead()) {
+        PersistenceMode mode = file != null && journalFileFor(file).exists()
+                ? PersistenceMode.JOURNAL : PersistenceMode.SNAPSHOT;
+        return loadFromFile(file, mode);
+    }
+
+    // Формат и сжатие берутся из самого файла, чтобы первое же изменение не переписало
+    // двоичный или сжатый снимок в CSV
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode) {
+        return loadFromFile(file, detectFormat(file, PersistenceSettings.defaults().withMode(mode)));
+    }
+
+    // Формат и сжатие задаются настройками: файл в другом формате читается и при следующей записи
+    // переписывается в формате настроек
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceSettings settings) {
+        boolean journaled = settings.getMode() == PersistenceMode.JOURNAL && file != null && journalFileFor(file).exists();
+        if (file == null || !(file.exists() || journaled) || (file.exists() && !file.canRead())) {
             throw new ManagerSaveException("Файл недоступен: " + file);
         }
 
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-
+        long started = System.nanoTime();
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, settings);
+        manager.restoring = true;
         try {
-            List<String> lines = Files.readAllLines(file.toPath());
-            if (lines.size() < 2) return manager;
-
-            Map<Integer, Epic> epicsMap = new HashMap<>();
-            Map<Integer, Task> allTasks = new HashMap<>();
-
-            // Создаем все эпики
-            lines.stream().skip(1) // пропускаем заголовок
-                    .takeWhile(line -> !line.isEmpty()).map(line -> fromString(line, epicsMap)).forEach(task -> {
-                        allTasks.put(task.getId(), task);
-                        if (task instanceof Epic) {
-                            manager.restoreEpic((Epic) task);
-                            epicsMap.put(task.getId(), (Epic) task);
-                        }
-                    });
-
-            // Создаем задачи и подзадачи
-            allTasks.values().stream().filter(task -> !(task instanceof Epic)).forEach(task -> {
-                if (task instanceof Subtask subtask) {
-                    Epic epic = epicsMap.get(subtask.getEpicId());
-                    if (epic != null) {
-                        manager.restoreSubtask(subtask);
-                    }
-                } else {
-                    manager.createTask(task);
-                }
-            });
+            if (file.exists()) {
+                manager.loadSnapshot();
+            }
+            if (manager.journal != null) {
+                manager.journal.replay(manager::applyRecord);
+                manager.journalRecords = manager.journal.size();
+            }
+        } finally {
+            manager.restoring = false;
+        }
+        LOADS.recordSince(started);
+        return manager;
+    }
+
+    // Восстановление после порчи основного файла или журнала: доска загружается из самой свежей читаемой
+    // контрольной точки (повреждённые пропускаются), и это состояние сразу записывается основным файлом
+    // с пустым журналом, чтобы дальнейшие изменения ложились поверх него
+    public static FileBackedTaskManager loadFromCheckpoint(File file, PersistenceSettings settings) {
+        RuntimeException failure = null;
+        for (File checkpoint : new CheckpointStore(file, settings.getCheckpointRetention()).list()) {
+            long started = System.nanoTime();
+            FileBackedTaskManager manager = new FileBackedTaskManager(file, settings);
+            manager.restoring = true;
+            try {
+                manager.loadSnapshot(checkpoint);
+            } catch (RuntimeException e) {
+                failure = e;
+                manager.close();
+                continue;
+            } finally {
+                manager.restoring = false;
+            }
+            manager.compact();
+            LOADS.recordSince(started);
+            return manager;
+        }
+        throw new ManagerSaveException("Нет читаемых контрольных точек для " + file.getAbsolutePath(), failure);
+    }
+
+    // Несжатый двоичный снимок читается через отображение в память, остальные — потоком
+    private void loadSnapshot() {
+        if (BinarySnapshot.isBinary(file)) {
+            BinarySnapshot.Contents contents = BinarySnapshot.read(file);
+            restoreSnapshot(contents.tasks(), contents.historyIds());
+        } else {
+            loadSnapshot(file);
+        }
+    }
 
-            // Восстанавливаем историю
-            int historyIndex = lines.indexOf("");
-            if (historyIndex >= 0 && historyIndex + 1 < lines.size()) {
-                Arrays.stream(lines.get(historyIndex + 1).split(",")).filter(s -> !s.isEmpty()).map(Integer::parseInt).map(allTasks::get).filter(Objects::nonNull).forEach(manager.historyManager::add);
+    private void loadSnapshot(File source) {
+        try (InputStream in = openSnapshot(source)) {
+            in.mark(Integer.BYTES);
+            byte[] head = in.readNBytes(Integer.BYTES);
+            in.reset();
+            if (head.length == Integer.BYTES && ByteBuffer.wrap(head).getInt() == BinarySnapshot.MAGIC) {
+                BinarySnapshot.Contents contents = BinarySnapshot.read(ByteBuffer.wrap(in.readAllBytes()), source);
+                restoreSnapshot(contents.tasks(), contents.historyIds());
+            } else {
+                loadCsvSnapshot(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
             }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла " + source.getAbsolutePath(), e);
+        }
+    }
 
+    private static PersistenceSettings detectFormat(File file, PersistenceSettings settings) {
+        if (file == null || !file.isFile() || file.length() == 0) {
+            return settings;
+        }
+        try (InputStream raw = new BufferedInputStream(new FileInputStream(file))) {
+            raw.mark(2);
+            boolean compressed = (raw.read() | (raw.read() << 8)) == GZIPInputStream.GZIP_MAGIC;
+            raw.reset();
+            try (DataInputStream in = new DataInputStream(compressed ? new GZIPInputStream(raw) : raw)) {
+                boolean binary = in.readInt() == BinarySnapshot.MAGIC;
+                return settings.withFormat(binary ? SnapshotFormat.BINARY : SnapshotFormat.CSV).withCompression(compressed);
+            }
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка загрузки из файла " + file.getAbsolutePath(), e);
+            // Короткий или повреждённый файл: ошибку с подробностями даст сама загрузка
+            return settings;
         }
+    }
 
-        return manager;
+    // Сжатый файл узнаётся по сигнатуре gzip и распаковывается на лету
+    private static InputStream openSnapshot(File source) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(source), 1 << 16);
+        in.mark(2);
+        int magic = in.read() | (in.read() << 8);
+        in.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC ? new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16) : in;
+    }
+
+    // Файл читается потоком, строка за строкой: в памяти одновременно только разобранные задачи
+    private void loadCsvSnapshot(BufferedReader reader) throws IOException {
+        List<Task> loaded = new ArrayList<>();
+        List<Integer> historyIds = new ArrayList<>();
+        String line = reader.readLine(); // заголовок
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            loaded.add(fromString(line));
+        }
+        String history = reader.readLine();
+        if (history != null) {
+            for (String id : history.split(",")) {
+                if (!id.isEmpty()) {
+                    historyIds.add(Integer.parseInt(id));
+                }
+            }
+        }
+
+        // Подзадачи без эпика в CSV не восстанавливаются
+        Set<Integer> epicIds = new HashSet<>();
+        for (Task task : loaded) {
+            if (task instanceof Epic) {
+                epicIds.add(task.getId());
+            }
+        }
+        loaded.removeIf(task -> task instanceof Subtask subtask && !epicIds.contains(subtask.getEpicId()));
+        restoreSnapshot(loaded, historyIds);
+    }
+
+    private void restoreSnapshot(List<Task> loaded, List<Integer> historyIds) {
+        restoreAll(loaded);
+        IntObjectHashMap<Task> byId = new IntObjectHashMap<>();
+        for (Task task : loaded) {
+            byId.put(task.getId(), task);
+        }
+        for (int id : historyIds) {
+            Task task = byId.get(id);
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+    }
+
+    // Повторяет одну запись журнала; вызывается только при восстановлении, когда persist() отключён
+    private void applyRecord(String record) {
+        int comma = record.indexOf(',');
+        String op = record.substring(0, comma);
+        String payload = record.substring(comma + 1);
+        String[] parts = payload.split(",");
+
+        switch (op) {
+            case "C":
+                Task created = fromString(payload);
+                if (created instanceof Epic epic) {
+                    restoreEpic(epic);
+                } else if (created instanceof Subtask subtask) {
+                    restoreSubtask(subtask);
+                } else {
+                    restoreTask(created);
+                }
+                break;
+            case "U":
+                Task updated = fromString(payload);
+                if (updated instanceof Epic epic) {
+                    updateEpic(epic);
+                } else if (updated instanceof Subtask subtask) {
+                    updateSubtask(subtask);
+                } else {
+                    updateTask(updated);
+                }
+                break;
+            case "D":
+                int id = Integer.parseInt(parts[1]);
+                switch (TaskType.valueOf(parts[0])) {
+                    case TASK -> deleteTaskById(id);
+                    case EPIC -> deleteEpicById(id);
+                    case SUBTASK -> deleteSubtaskById(id);
+                }
+                break;
+            case "X":
+                switch (TaskType.valueOf(parts[0])) {
+                    case TASK -> deleteTasks();
+                    case EPIC -> deleteEpics();
+                    case SUBTASK -> deleteSubtasks();
+                }
+                break;
+            case "H":
+                int viewedId = Integer.parseInt(parts[0]);
+                if (getTask(viewedId).isEmpty() && getEpic(viewedId).isEmpty()) {
+                    getSubtask(viewedId);
+                }
+                break;
+            default:
+                throw new ManagerSaveException("Неизвестная запись журнала: " + record);
+        }
     }
 
     // Преобразуем задачу в строку CSV
-    private String toString(Task task) {
-        String type = task instanceof Epic ? "EPIC" : task instanceof Subtask ? "SUBTASK" : "TASK";
+    private static String toString(Task task) {
+        String type = TaskType.of(task).name();
         String epicId = task instanceof Subtask ? String.valueOf(((Subtask) task).getEpicId()) : "";
         String durationMinutes = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "";
         String start = task.getStartTime() != null ? task.getStartTime().toString() : "";
@@ -165,7 +520,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return String.join(",", ids);
     }
 
-    private static Task fromString(String value, Map<Integer, Epic> epicsMap) {
+    private static Task fromString(String value) {
         String[] parts = value.split(",");
         int id = Integer.parseInt(parts[0]);
         String type = parts[1];
@@ -182,25 +537,144 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                 return new Epic(id, title, description);
             case "SUBTASK":
                 int epicId = parts.length > 5 && !parts[5].isEmpty() ? Integer.parseInt(parts[5]) : 0;
-                Subtask subtask = new Subtask(id, title, description, status, epicId, duration, startTime);
-                Epic epic = epicsMap.get(epicId);
-                if (epic != null) epic.addSubtask(subtask);
-                return subtask;
+                return new Subtask(id, title, description, status, epicId, duration, startTime);
             default:
                 throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
         }
     }
 
-    private void save() {
-        try (PrintWriter writer = new PrintWriter(file)) {
-            writer.println("id,type,name,status,description,epic,duration,startTime");
+    private void persist(Supplier<String> record) {
+        if (restoring) {
+            return;
+        }
+        if (batching) {
+            if (journal == null) {
+                batchDirty = true;
+            } else {
+                batchRecords.add(record.get());
+            }
+            return;
+        }
+        checkpointDue = true;
+        if (journal == null) {
+            byte[] snapshot = renderSnapshot();
+            acknowledge(snapshotWriter.submit(snapshot));
+            checkpointIfDue(snapshot);
+            return;
+        }
+        acknowledge(journalWriter.submit(record.get()));
+        if (++journalRecords >= settings.getCompactionThreshold()) {
+            compact();
+        }
+        checkpointIfDue(null);
+    }
+
+    private void persistBatch() {
+        if (journal == null) {
+            if (batchDirty) {
+                batchDirty = false;
+                checkpointDue = true;
+                byte[] snapshot = renderSnapshot();
+                acknowledge(snapshotWriter.submit(snapshot));
+                checkpointIfDue(snapshot);
+            }
+            return;
+        }
+        if (batchRecords.isEmpty()) {
+            return;
+        }
+        checkpointDue = true;
+        List<String> records = new ArrayList<>(batchRecords);
+        batchRecords.clear();
+        acknowledge(journalWriter.submitAll(records));
+        journalRecords += records.size();
+        if (journalRecords >= settings.getCompactionThreshold()) {
+            compact();
+        }
+        checkpointIfDue(null);
+    }
+
+    // Снимок для периодической точки собирается здесь, в потоке, который менял доску,
+    // а сжатие и запись уходят в фон. В режиме SNAPSHOT переиспользуется только что собранный снимок
+    private void checkpointIfDue(byte[] rendered) {
+        if (checkpointWriter == null
+                || System.nanoTime() - lastCheckpointNanos < settings.getCheckpointInterval().toNanos()) {
+            return;
+        }
+        submitCheckpoint(rendered != null ? rendered : renderSnapshot());
+    }
+
+    private void submitCheckpoint(byte[] content) {
+        lastCheckpointNanos = System.nanoTime();
+        checkpointDue = false;
+        checkpointWriter.submit(content);
+    }
+
+    private void acknowledge(CompletableFuture<Void> ack) {
+        if (deferredAcknowledgement) {
+            pendingAck.set(ack);
+        } else {
+            GroupCommitWriter.await(ack);
+        }
+    }
+
+    private GroupCommitWriter<?> pendingWriter() {
+        return journalWriter != null ? journalWriter : snapshotWriter;
+    }
+
+    private byte[] renderSnapshot() {
+        long started = System.nanoTime();
+        try {
+            if (settings.getFormat() == SnapshotFormat.BINARY) {
+                return BinarySnapshot.toBytes(getAllTasks(), historyManager.getHistory());
+            }
+            StringBuilder sb = new StringBuilder(HEADER).append('\n');
             for (Task task : getAllTasks()) {
-                writer.println(toString(task));
+                sb.append(toString(task)).append('\n');
             }
-            writer.println();
-            writer.println(historyToString(historyManager.getHistory()));
+            sb.append('\n');
+            sb.append(historyToString(historyManager.getHistory())).append('\n');
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        } finally {
+            RENDERS.recordSince(started);
+        }
+    }
+
+    private void writeJournalBatch(List<String> records) {
+        long started = System.nanoTime();
+        journal.appendAll(records);
+        JOURNAL_WRITES.recordSince(started);
+    }
+
+    // Снимки в пачке полностью перекрывают друг друга, достаточно записать последний
+    private void writeLatestSnapshot(List<byte[]> snapshots) {
+        writeSnapshot(snapshots.get(snapshots.size() - 1));
+    }
+
+    private void writeLatestCheckpoint(List<byte[]> snapshots) {
+        writeCheckpoint(snapshots.get(snapshots.size() - 1));
+    }
+
+    private void writeCheckpoint(byte[] content) {
+        long started = System.nanoTime();
+        checkpoints.write(content);
+        CHECKPOINT_WRITES.recordSince(started);
+    }
+
+    private synchronized void writeSnapshot(byte[] content) {
+        long started = System.nanoTime();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(settings.isCompressed() ? CheckpointStore.compress(content) : content);
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл " + file.getAbsolutePath(), e);
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения в файл " + file.getAbsolutePath(), e);
         }
+        SNAPSHOT_WRITES.recordSince(started);
     }
 }
@@ -1,6 +1,17 @@
 import org.junit.jupiter.api.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,4 +41,353 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
             new FileBackedTaskManager(file);
         });
     }
+
+    @Test
+    void shouldReplayJournalWithoutRewritingSnapshot() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        file.delete();
+        File journal = FileBackedTaskManager.journalFileFor(file);
+        journal.deleteOnExit();
+
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task task = new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        journaled.createTask(task);
+        Epic epic = new Epic(0, "Epic", "Desc");
+        journaled.createEpic(epic);
+        Subtask sub = new Subtask(0, "Sub", "Desc", TaskStatus.DONE, epic.getId());
+        journaled.createSubtask(sub);
+        Task removed = new Task(0, "Removed", "Desc", TaskStatus.NEW);
+        journaled.createTask(removed);
+        journaled.deleteTaskById(removed.getId());
+        journaled.getEpic(epic.getId());
+        journaled.close();
+
+        assertFalse(file.exists(), "В режиме журнала CSV не должен перезаписываться на каждое изменение");
+        assertTrue(journal.length() > 0);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(PersistenceMode.JOURNAL, loaded.getPersistenceMode());
+        assertEquals(List.of(task), loaded.getTasks());
+        assertEquals(List.of(epic), loaded.getHistory());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).orElseThrow().getStatus());
+
+        Task next = new Task(0, "Next", "Desc", TaskStatus.NEW);
+        loaded.createTask(next);
+        assertTrue(next.getId() > removed.getId(), "Новые id не должны совпадать с восстановленными");
+        loaded.close();
+    }
+
+    @Test
+    void shouldBulkRestoreLargeFileWithoutWritingIt() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        file.deleteOnExit();
+        LocalDateTime origin = LocalDateTime.of(2025, 1, 1, 0, 0);
+        int epicCount = 4;
+        int perEpic = 3000;
+        // Строки идут по убыванию id, подзадачи раньше своих эпиков, а в id есть пропуски
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic,duration,startTime\n");
+        for (int epic = epicCount; epic >= 1; epic--) {
+            int epicId = epic * 10_000;
+            for (int i = perEpic; i >= 1; i--) {
+                int id = epicId + i;
+                TaskStatus status = epic == 1 || i > 1 ? TaskStatus.DONE : TaskStatus.NEW;
+                csv.append(id).append(",SUBTASK,Sub,").append(status).append(",Desc,").append(epicId)
+                        .append(",10,").append(origin.plusMinutes(15L * id)).append('\n');
+            }
+            csv.append(epicId).append(",EPIC,Epic,NEW,Desc,,,\n");
+        }
+        csv.append("7,TASK,Task,NEW,Desc,,,\n");
+        csv.append('\n').append("20002,7\n");
+        Files.writeString(file.toPath(), csv);
+        long modified = file.lastModified();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertEquals(csv.toString(), Files.readString(file.toPath()), "Загрузка не должна переписывать файл");
+        assertEquals(modified, file.lastModified());
+        assertEquals(epicCount * perEpic, loaded.getSubtasks().size());
+        assertEquals(List.of(20002, 7), loaded.getHistory().stream().map(Task::getId).toList());
+
+        Epic first = loaded.getEpics().get(0);
+        assertEquals(10_000, first.getId());
+        assertEquals(TaskStatus.DONE, first.getStatus());
+        assertEquals(Duration.ofMinutes(10L * perEpic), first.getDuration());
+        assertEquals(origin.plusMinutes(15L * 10_001), first.getStartTime());
+        assertEquals(origin.plusMinutes(15L * (10_000 + perEpic) + 10), first.getEndTime());
+        assertEquals(perEpic, loaded.getEpicSubtasks(10_000).size());
+        assertEquals(TaskStatus.IN_PROGRESS, loaded.getEpics().get(1).getStatus());
+
+        List<Task> prioritized = loaded.getPrioritizedTasks();
+        assertEquals(epicCount * perEpic, prioritized.size());
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertTrue(prioritized.get(i - 1).getStartTime().isBefore(prioritized.get(i).getStartTime()));
+        }
+
+        Task next = new Task(0, "Next", "Desc", TaskStatus.NEW);
+        loaded.createTask(next);
+        assertEquals(epicCount * 10_000 + perEpic + 1, next.getId(), "Счётчик id должен продолжаться с максимального");
+        loaded.close();
+    }
+
+    @Test
+    void shouldRotateCompressedCheckpointsAndRestoreFromNewestReadable() throws IOException {
+        File file = new File(Files.createTempDirectory("board").toFile(), "tasks.csv");
+        PersistenceSettings settings = PersistenceSettings.defaults().withCheckpoints(Duration.ZERO, 2);
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, settings);
+        for (int i = 1; i <= 3; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW));
+            manager.checkpoint();
+        }
+        manager.close();
+
+        List<File> checkpoints = manager.getCheckpoints();
+        assertEquals(List.of("tasks.csv.3.gz", "tasks.csv.2.gz"), checkpoints.stream().map(File::getName).toList());
+        byte[] head = Files.readAllBytes(checkpoints.get(0).toPath());
+        assertEquals((byte) 0x1f, head[0]);
+        assertEquals((byte) 0x8b, head[1]);
+
+        Files.writeString(file.toPath(), "испорчено");
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromCheckpoint(file, settings);
+        assertEquals(3, restored.getTasks().size());
+        restored.close();
+        assertEquals(3, FileBackedTaskManager.loadFromFile(file, settings).getTasks().size(),
+                "Восстановленное состояние должно записаться основным файлом");
+
+        Files.write(checkpoints.get(0).toPath(), new byte[]{0x1f, (byte) 0x8b, 1, 2, 3});
+        FileBackedTaskManager fallback = FileBackedTaskManager.loadFromCheckpoint(file, settings);
+        assertEquals(2, fallback.getTasks().size(), "Повреждённая точка пропускается в пользу предыдущей");
+        fallback.close();
+    }
+
+    @Test
+    void shouldWriteCompressedSnapshotsAndPeriodicCheckpoints() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File dir = Files.createTempDirectory("board").toFile();
+            File plainFile = new File(dir, "plain");
+            File file = new File(dir, "compressed");
+            PersistenceSettings plainSettings = PersistenceSettings.defaults().withFormat(format);
+            PersistenceSettings settings = plainSettings.withCompression(true)
+                    .withCheckpoints(Duration.ofMillis(1), 3);
+            FileBackedTaskManager plain = new FileBackedTaskManager(plainFile, plainSettings);
+            FileBackedTaskManager compressed = new FileBackedTaskManager(file, settings);
+            for (int i = 0; i < 200; i++) {
+                plain.createTask(new Task(0, "Task " + i, "Одинаковое описание", TaskStatus.NEW));
+                compressed.createTask(new Task(0, "Task " + i, "Одинаковое описание", TaskStatus.NEW));
+            }
+            plain.close();
+            compressed.close();
+
+            assertTrue(file.length() * 2 < plainFile.length(), "Сжатый снимок должен быть заметно меньше: " + format);
+            assertEquals(200, FileBackedTaskManager.loadFromFile(file, settings).getTasks().size());
+            List<File> checkpoints = compressed.getCheckpoints();
+            assertFalse(checkpoints.isEmpty());
+            assertTrue(checkpoints.size() <= 3);
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromCheckpoint(file, settings);
+            assertEquals(200, restored.getTasks().size(), "При закрытии пишется последняя точка");
+            restored.close();
+        }
+    }
+
+    @Test
+    void shouldPersistBatchOnceAtTheEnd() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        file.delete();
+        file.deleteOnExit();
+
+        FileBackedTaskManager snapshot = new FileBackedTaskManager(file);
+        snapshot.inBatch(batch -> {
+            for (int i = 0; i < 10; i++) {
+                batch.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW));
+            }
+            assertFalse(file.exists(), "Внутри пачки снимок не должен записываться");
+        });
+        assertEquals(10, FileBackedTaskManager.loadFromFile(file).getTasks().size());
+        snapshot.close();
+
+        File journaledFile = File.createTempFile("tasks", ".csv");
+        journaledFile.delete();
+        File journal = FileBackedTaskManager.journalFileFor(journaledFile);
+        journal.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(journaledFile, PersistenceMode.JOURNAL);
+        journaled.inBatch(batch -> {
+            Epic epic = new Epic(0, "Epic", "Desc");
+            batch.createEpic(epic);
+            batch.createSubtask(new Subtask(0, "Sub", "Desc", TaskStatus.DONE, epic.getId()));
+            assertEquals(0, journal.length(), "Внутри пачки журнал не должен дописываться");
+        });
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(journaledFile);
+        assertEquals(1, loaded.getEpics().size());
+        assertEquals(TaskStatus.DONE, loaded.getEpics().get(0).getStatus());
+        loaded.close();
+    }
+
+    @Test
+    void shouldCompactJournalIntoCheckpoint() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        file.deleteOnExit();
+        File journal = FileBackedTaskManager.journalFileFor(file);
+        journal.deleteOnExit();
+
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, 3);
+        journaled.createTask(new Task(0, "T1", "Desc", TaskStatus.NEW));
+        journaled.createTask(new Task(0, "T2", "Desc", TaskStatus.NEW));
+        journaled.createTask(new Task(0, "T3", "Desc", TaskStatus.NEW));
+        assertEquals(0, journal.length(), "После компакции журнал должен быть пуст");
+
+        journaled.createTask(new Task(0, "T4", "Desc", TaskStatus.NEW));
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(4, loaded.getTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void shouldPersistBatchesInGroupCommitAndAsyncModes() throws IOException {
+        for (DurabilityMode durability : List.of(DurabilityMode.GROUP_COMMIT, DurabilityMode.ASYNC)) {
+            File file = File.createTempFile("tasks", ".csv");
+            file.deleteOnExit();
+            FileBackedTaskManager.journalFileFor(file).deleteOnExit();
+            PersistenceSettings settings = PersistenceSettings.defaults()
+                    .withMode(PersistenceMode.JOURNAL)
+                    .withDurability(durability)
+                    .withGroupCommitWindow(Duration.ofMillis(1));
+
+            FileBackedTaskManager batched = new FileBackedTaskManager(file, settings);
+            for (int i = 0; i < 10; i++) {
+                batched.createTask(new Task(0, "T" + i, "Desc", TaskStatus.NEW));
+            }
+            batched.close();
+
+            assertEquals(10, FileBackedTaskManager.loadFromFile(file).getTasks().size(),
+                    "Все изменения должны оказаться на диске после close() в режиме " + durability);
+        }
+    }
+
+    @Test
+    void shouldWriteOrRejectEverySubmitRacingWithClose() throws Exception {
+        for (DurabilityMode durability : List.of(DurabilityMode.GROUP_COMMIT, DurabilityMode.ASYNC)) {
+            for (int round = 0; round < 20; round++) {
+                Set<Integer> written = ConcurrentHashMap.newKeySet();
+                GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(durability, Duration.ofMillis(1), written::addAll);
+                Set<Integer> accepted = ConcurrentHashMap.newKeySet();
+                CountDownLatch started = new CountDownLatch(1);
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; ; i++) {
+                        try {
+                            CompletableFuture<Void> ack = writer.submit(i);
+                            started.countDown();
+                            accepted.add(i);
+                            if (durability == DurabilityMode.GROUP_COMMIT) {
+                                ack.get(5, TimeUnit.SECONDS);
+                            }
+                        } catch (ManagerSaveException e) {
+                            return;
+                        } catch (Exception e) {
+                            throw new AssertionError("Подтверждение записи " + i + " не пришло", e);
+                        }
+                    }
+                });
+                producer.start();
+                started.await();
+                writer.close();
+                producer.join(TimeUnit.SECONDS.toMillis(10));
+
+                assertFalse(producer.isAlive(), "Ожидание подтверждения не должно зависать после close()");
+                assertTrue(written.containsAll(accepted),
+                        "Каждая принятая запись должна оказаться записанной в режиме " + durability);
+            }
+        }
+    }
+
+    @Test
+    void shouldConvertCsvToBinarySnapshotAndLoadIt() throws IOException {
+        File csv = File.createTempFile("tasks", ".csv");
+        csv.deleteOnExit();
+        File binary = File.createTempFile("tasks", ".bin");
+        binary.deleteOnExit();
+
+        FileBackedTaskManager source = new FileBackedTaskManager(csv);
+        Task task = new Task(0, "Задача", "Описание", TaskStatus.IN_PROGRESS,
+                Duration.ofMinutes(45), LocalDateTime.of(2025, 10, 28, 9, 30));
+        source.createTask(task);
+        Epic epic = new Epic(0, "Эпик", "Описание");
+        source.createEpic(epic);
+        Subtask sub = new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(15), LocalDateTime.of(2025, 10, 29, 9, 0));
+        source.createSubtask(sub);
+        source.getSubtask(sub.getId());
+
+        BinarySnapshot.convertFromCsv(csv, binary);
+        assertTrue(BinarySnapshot.isBinary(binary));
+        assertFalse(BinarySnapshot.isBinary(csv));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binary);
+        assertEquals(List.of(sub), loaded.getHistory());
+        Task loadedTask = loaded.getTask(task.getId()).orElseThrow();
+        assertEquals(task.getTitle(), loadedTask.getTitle());
+        assertEquals(task.getStatus(), loadedTask.getStatus());
+        assertEquals(task.getStartTime(), loadedTask.getStartTime());
+        assertEquals(task.getDuration(), loadedTask.getDuration());
+        Epic loadedEpic = loaded.getEpic(epic.getId()).orElseThrow();
+        assertEquals(TaskStatus.DONE, loadedEpic.getStatus());
+        assertEquals(sub.getEndTime(), loadedEpic.getEndTime());
+    }
+
+    @Test
+    void shouldRejectSnapshotWithCountsBeyondFileSize() {
+        File source = new File("tasks.bin");
+        for (int count : new int[]{Integer.MAX_VALUE, -1}) {
+            ByteBuffer header = ByteBuffer.allocate(16)
+                    .putInt(BinarySnapshot.MAGIC).putShort(BinarySnapshot.VERSION).putInt(count);
+            header.flip();
+            assertThrows(ManagerSaveException.class, () -> BinarySnapshot.read(header, source),
+                    "Число задач " + count + " не должно приводить к выделению памяти");
+        }
+
+        byte[] bytes = BinarySnapshot.toBytes(List.of(new Task(1, "Задача", "Описание", TaskStatus.NEW)), List.of());
+        ByteBuffer history = ByteBuffer.wrap(bytes);
+        history.putInt(bytes.length - Integer.BYTES, 1_000_000);
+        assertThrows(ManagerSaveException.class, () -> BinarySnapshot.read(history, source));
+
+        ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 6);
+        assertThrows(ManagerSaveException.class, () -> BinarySnapshot.read(truncated, source));
+    }
+
+    @Test
+    void shouldWriteBinarySnapshotsWhenConfigured() throws IOException {
+        File file = File.createTempFile("tasks", ".bin");
+        file.deleteOnExit();
+        FileBackedTaskManager binary = new FileBackedTaskManager(file,
+                PersistenceSettings.defaults().withFormat(SnapshotFormat.BINARY));
+        binary.createTask(new Task(0, "T", "Desc", TaskStatus.NEW));
+
+        assertTrue(BinarySnapshot.isBinary(file));
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file).getTasks().size());
+    }
+
+    @Test
+    void shouldKeepFormatAndCompressionOfLoadedFileOnNextSave() throws IOException {
+        File binary = File.createTempFile("tasks", ".bin");
+        binary.deleteOnExit();
+        new FileBackedTaskManager(binary, PersistenceSettings.defaults().withFormat(SnapshotFormat.BINARY))
+                .createTask(new Task(0, "T", "Desc", TaskStatus.NEW));
+        File gzip = File.createTempFile("tasks", ".csv.gz");
+        gzip.deleteOnExit();
+        new FileBackedTaskManager(gzip, PersistenceSettings.defaults().withCompression(true))
+                .createTask(new Task(0, "T", "Desc", TaskStatus.NEW));
+
+        FileBackedTaskManager.loadFromFile(binary).createTask(new Task(0, "После загрузки", "Desc", TaskStatus.NEW));
+        FileBackedTaskManager.loadFromFile(gzip).createTask(new Task(0, "После загрузки", "Desc", TaskStatus.NEW));
+
+        assertTrue(BinarySnapshot.isBinary(binary), "Двоичный снимок не должен переписываться в CSV");
+        byte[] head = Files.readAllBytes(gzip.toPath());
+        assertEquals(0x1f, head[0] & 0xff, "Сжатый снимок должен остаться сжатым");
+        assertEquals(0x8b, head[1] & 0xff, "Сжатый снимок должен остаться сжатым");
+        assertEquals(2, FileBackedTaskManager.loadFromFile(binary).getTasks().size());
+        assertEquals(2, FileBackedTaskManager.loadFromFile(gzip).getTasks().size());
+    }
 }
@@ -0,0 +1,225 @@
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Стадия группового коммита: собирает записи, пришедшие в пределах окна,
+// и отдаёт их пачкой batchWriter'у, который пишет их одной операцией с одним fsync
+public class GroupCommitWriter<T> implements Closeable {
+
+    private static final int MAX_BATCH = 4096;
+
+    private record Pending<T>(T record, CompletableFuture<Void> ack) {
+    }
+
+    private final DurabilityMode mode;
+    private final long windowNanos;
+    private final Consumer<List<T>> batchWriter;
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    // Маркер закрытия: фоновый поток, дойдя до него, дописывает остаток очереди и завершается
+    private final Pending<T> shutdown = new Pending<>(null, new CompletableFuture<>());
+    private volatile boolean closed;
+    private volatile RuntimeException asyncFailure;
+
+    public GroupCommitWriter(DurabilityMode mode, Duration window, Consumer<List<T>> batchWriter) {
+        this.mode = mode;
+        this.windowNanos = window.toNanos();
+        this.batchWriter = batchWriter;
+        if (mode == DurabilityMode.SYNC) {
+            committer = null;
+        } else {
+            committer = new Thread(this::runCommitter, "kanban-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    // Возвращает future, которая завершается, когда запись окажется на диске.
+    // В режиме ASYNC запись подтверждается сразу.
+    public CompletableFuture<Void> submit(T record) {
+        if (closed) {
+            throw new ManagerSaveException("Запись после закрытия хранилища");
+        }
+        rethrowAsyncFailure();
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (this) {
+                batchWriter.accept(List.of(record));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        Pending<T> pending = new Pending<>(record, new CompletableFuture<>());
+        enqueue(List.of(pending));
+        return mode == DurabilityMode.ASYNC ? CompletableFuture.completedFuture(null) : pending.ack();
+    }
+
+    // Пачка записей с одним подтверждением: в режиме SYNC пишется одним вызовом batchWriter'а,
+    // иначе future последней записи завершится не раньше, чем запишутся все предыдущие
+    public CompletableFuture<Void> submitAll(List<T> records) {
+        if (closed) {
+            throw new ManagerSaveException("Запись после закрытия хранилища");
+        }
+        rethrowAsyncFailure();
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (mode == DurabilityMode.SYNC) {
+            synchronized (this) {
+                batchWriter.accept(records);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Pending<T>> pending = new ArrayList<>(records.size());
+        for (T record : records) {
+            pending.add(new Pending<>(record, new CompletableFuture<>()));
+        }
+        enqueue(pending);
+        return mode == DurabilityMode.ASYNC ? CompletableFuture.completedFuture(null) : pending.get(pending.size() - 1).ack();
+    }
+
+    // Запись, добавленная в очередь уже после последней выборки при закрытии, никем не была бы
+    // записана: такие записи забираются обратно, и вызывающий получает ошибку
+    private void enqueue(List<Pending<T>> pending) {
+        queue.addAll(pending);
+        if (!closed) {
+            return;
+        }
+        boolean dropped = false;
+        for (Pending<T> p : pending) {
+            if (queue.remove(p)) {
+                p.ack().completeExceptionally(new ManagerSaveException("Запись после закрытия хранилища"));
+                dropped = true;
+            }
+        }
+        if (dropped) {
+            throw new ManagerSaveException("Запись после закрытия хранилища");
+        }
+    }
+
+    // Ждёт, пока всё, что было отправлено до вызова, не будет записано
+    public void flush() {
+        if (mode == DurabilityMode.SYNC) {
+            return;
+        }
+        Pending<T> marker = new Pending<>(null, new CompletableFuture<>());
+        queue.add(marker);
+        // Фоновый поток мог уже завершиться: тогда ждём его последнюю пачку
+        await(closed && queue.remove(marker) ? shutdown.ack() : marker.ack());
+        rethrowAsyncFailure();
+    }
+
+    public static void await(CompletableFuture<Void> ack) {
+        try {
+            ack.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ManagerSaveException mse) {
+                throw mse;
+            }
+            throw new ManagerSaveException("Ошибка группового коммита", e.getCause());
+        }
+    }
+
+    // Сначала запрещает новые записи, затем ждёт, пока фоновый поток запишет всё, что уже в очереди.
+    // Записи, проскочившие в очередь одновременно с закрытием, дописываются здесь же
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (committer == null) {
+            return;
+        }
+        queue.add(shutdown);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<Pending<T>> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        commit(rest);
+        await(shutdown.ack());
+        for (Pending<T> pending : rest) {
+            await(pending.ack());
+        }
+        rethrowAsyncFailure();
+    }
+
+    // Работает до маркера закрытия; всё, что пришло в очередь до него и сразу после, пишется перед выходом
+    private void runCommitter() {
+        List<Pending<T>> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Pending<T> first = queue.take();
+                batch.add(first);
+                stopping = first == shutdown;
+                long deadline = System.nanoTime() + windowNanos;
+                long left;
+                while (!stopping && batch.size() < MAX_BATCH && (left = deadline - System.nanoTime()) > 0) {
+                    Pending<T> next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    stopping = next == shutdown;
+                }
+            } catch (InterruptedException e) {
+                // Фоновый поток никто не прерывает: закрытие идёт через маркер в очереди
+            }
+            if (stopping) {
+                queue.drainTo(batch);
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<T> records = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            if (pending.record() != null) {
+                records.add(pending.record());
+            }
+        }
+        RuntimeException failure = null;
+        if (!records.isEmpty()) {
+            try {
+                batchWriter.accept(records);
+            } catch (RuntimeException e) {
+                failure = e;
+                asyncFailure = e;
+            }
+        }
+        for (Pending<T> pending : batch) {
+            if (failure == null) {
+                pending.ack().complete(null);
+            } else {
+                pending.ack().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void rethrowAsyncFailure() {
+        RuntimeException failure = asyncFailure;
+        if (failure != null && mode == DurabilityMode.ASYNC) {
+            asyncFailure = null;
+            throw new ManagerSaveException("Ошибка фоновой записи", failure);
+        }
+    }
+}
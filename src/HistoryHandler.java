@@ -20,7 +20,7 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
                 sendText(h, "{\"error\":\"Invalid method\"}", 405);
                 return;
             }
-            sendText(h, gson.toJson(manager.getHistory()), 200);
+            sendJson(h, gson, manager.getHistory(), 200);
         } catch (Exception e) {
             e.printStackTrace();
             sendInternalError(h);
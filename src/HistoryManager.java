@@ -6,4 +6,9 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    // true, если add/remove/getHistory можно вызывать из разных потоков без внешней синхронизации
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -0,0 +1,157 @@
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Настройки исполнения HTTP-сервера. Экземпляры неизменяемые: with* возвращают копию.
+public class HttpServerSettings {
+
+    public enum ExecutionMode {
+        // Все запросы обрабатываются единственным потоком-диспетчером HttpServer
+        DISPATCHER,
+        // Отдельный виртуальный поток на каждый запрос
+        VIRTUAL_THREADS,
+        // Пул платформенных потоков фиксированного размера с ограниченной очередью
+        BOUNDED_POOL
+    }
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_BACKLOG = 128;
+    public static final Duration DEFAULT_SHUTDOWN_DRAIN = Duration.ofSeconds(1);
+
+    private final int port;
+    private final ExecutionMode executionMode;
+    private final int poolSize;
+    private final int queueCapacity;
+    private final int backlog;
+    private final Duration shutdownDrain;
+    private final boolean prettyJson;
+
+    private HttpServerSettings(int port, ExecutionMode executionMode, int poolSize, int queueCapacity,
+                               int backlog, Duration shutdownDrain, boolean prettyJson) {
+        if (poolSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Размер пула и очереди должен быть положительным");
+        }
+        if (backlog < 0 || shutdownDrain.isNegative()) {
+            throw new IllegalArgumentException("Backlog и время завершения не могут быть отрицательными");
+        }
+        this.port = port;
+        this.executionMode = executionMode;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        this.backlog = backlog;
+        this.shutdownDrain = shutdownDrain;
+        this.prettyJson = prettyJson;
+    }
+
+    public static HttpServerSettings defaults() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return new HttpServerSettings(DEFAULT_PORT, ExecutionMode.VIRTUAL_THREADS, cpus * 2, 1024,
+                DEFAULT_BACKLOG, DEFAULT_SHUTDOWN_DRAIN, false);
+    }
+
+    // kanban.http.port, kanban.http.executor (dispatcher|virtual|pool), kanban.http.threads,
+    // kanban.http.queue, kanban.http.backlog, kanban.http.drainMillis (или kanban.http.drainSeconds),
+    // kanban.http.prettyJson
+    public static HttpServerSettings fromSystemProperties() {
+        HttpServerSettings defaults = defaults();
+        String mode = System.getProperty("kanban.http.executor", "virtual");
+        ExecutionMode executionMode = switch (mode) {
+            case "dispatcher" -> ExecutionMode.DISPATCHER;
+            case "virtual" -> ExecutionMode.VIRTUAL_THREADS;
+            case "pool" -> ExecutionMode.BOUNDED_POOL;
+            default -> throw new IllegalArgumentException("Неизвестный режим исполнения: " + mode);
+        };
+        return new HttpServerSettings(
+                Integer.getInteger("kanban.http.port", defaults.port),
+                executionMode,
+                Integer.getInteger("kanban.http.threads", defaults.poolSize),
+                Integer.getInteger("kanban.http.queue", defaults.queueCapacity),
+                Integer.getInteger("kanban.http.backlog", defaults.backlog),
+                drainFromSystemProperties(defaults.shutdownDrain),
+                Boolean.parseBoolean(System.getProperty("kanban.http.prettyJson", String.valueOf(defaults.prettyJson))));
+    }
+
+    // Миллисекунды важнее секунд: так можно задать и доли секунды, которые stop() честно выдерживает
+    private static Duration drainFromSystemProperties(Duration fallback) {
+        Long millis = Long.getLong("kanban.http.drainMillis");
+        if (millis != null) {
+            return Duration.ofMillis(millis);
+        }
+        Long seconds = Long.getLong("kanban.http.drainSeconds");
+        return seconds != null ? Duration.ofSeconds(seconds) : fallback;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public Duration getShutdownDrain() {
+        return shutdownDrain;
+    }
+
+    // По умолчанию JSON компактный; отступы удобны при отладке, но заметно раздувают большие ответы
+    public boolean isPrettyJson() {
+        return prettyJson;
+    }
+
+    public boolean isMultiThreaded() {
+        return executionMode != ExecutionMode.DISPATCHER;
+    }
+
+    public HttpServerSettings withPort(int port) {
+        return new HttpServerSettings(port, executionMode, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    public HttpServerSettings withExecutionMode(ExecutionMode executionMode) {
+        return new HttpServerSettings(port, executionMode, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    public HttpServerSettings withBoundedPool(int poolSize, int queueCapacity) {
+        return new HttpServerSettings(port, ExecutionMode.BOUNDED_POOL, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    public HttpServerSettings withBacklog(int backlog) {
+        return new HttpServerSettings(port, executionMode, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    public HttpServerSettings withShutdownDrain(Duration shutdownDrain) {
+        return new HttpServerSettings(port, executionMode, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    public HttpServerSettings withPrettyJson(boolean prettyJson) {
+        return new HttpServerSettings(port, executionMode, poolSize, queueCapacity, backlog, shutdownDrain, prettyJson);
+    }
+
+    // null для DISPATCHER: HttpServer тогда обрабатывает запросы в своём потоке
+    ExecutorService createExecutor() {
+        switch (executionMode) {
+            case VIRTUAL_THREADS:
+                return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+            case BOUNDED_POOL:
+                AtomicInteger counter = new AtomicInteger();
+                // При переполнении очереди запрос выполняется в потоке-диспетчере — это и есть обратное давление
+                return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        r -> new Thread(r, "http-" + counter.getAndIncrement()),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+            default:
+                return null;
+        }
+    }
+}
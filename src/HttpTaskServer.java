@@ -7,33 +7,104 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     private final HttpServer server;
     private final TaskManager manager;
-    private final Gson gson;
+    private final HttpServerSettings settings;
+    private final ExecutorService executor;
+    private final List<Metrics.Gauge> gauges;
 
     public HttpTaskServer(TaskManager manager, Gson gson) throws IOException {
+        this(manager, gson, HttpServerSettings.defaults());
+    }
+
+    public HttpTaskServer(TaskManager manager, Gson gson, HttpServerSettings settings) throws IOException {
+        this(manager, gson, settings, null);
+    }
+
+    // boards != null — дополнительно обслуживает независимые доски по /boards/{boardId}/...;
+    // реестр остаётся за вызывающим, сервер его не закрывает
+    public HttpTaskServer(TaskManager manager, Gson gson, HttpServerSettings settings, BoardRegistry boards)
+            throws IOException {
+        // При многопоточной обработке менеджер без собственной синхронизации оборачиваем
+        if (settings.isMultiThreaded() && !(manager instanceof ConcurrentTaskManager)) {
+            manager = new ConcurrentTaskManager(manager);
+        }
         this.manager = manager;
-        this.gson = buildGson();
-        server = HttpServer.create(new InetSocketAddress(8080), 0);
+        this.settings = settings;
+        server = HttpServer.create(new InetSocketAddress(settings.getPort()), settings.getBacklog());
+        executor = settings.createExecutor();
+        server.setExecutor(executor);
+        Metrics metrics = Metrics.global();
+        gauges = registerGauges(manager, metrics);
         // Пример: регистрируем обработчики
-        server.createContext("/tasks", new TasksHandler(manager, gson));
-        server.createContext("/subtasks", new SubtasksHandler(manager, gson));
-        server.createContext("/epics", new EpicsHandler(manager, gson));
+        server.createContext("/tasks", new InstrumentedHandler("tasks", new TasksHandler(manager, gson), metrics));
+        server.createContext("/subtasks", new InstrumentedHandler("subtasks", new SubtasksHandler(manager, gson), metrics));
+        server.createContext("/epics", new InstrumentedHandler("epics", new EpicsHandler(manager, gson), metrics));
+        server.createContext("/prioritized",
+                new InstrumentedHandler("prioritized", new PrioritizedHandler(manager, gson), metrics));
+        // Подписчик занимает поток обработки на всё время подписки, поэтому с единственным потоком-диспетчером
+        // поток событий не включается, а из пула подписчикам отдаётся не больше половины потоков
+        if (settings.isMultiThreaded()) {
+            int maxSubscribers = settings.getExecutionMode() == HttpServerSettings.ExecutionMode.BOUNDED_POOL
+                    ? Math.max(1, settings.getPoolSize() / 2) : EventsHandler.DEFAULT_MAX_SUBSCRIBERS;
+            server.createContext("/events", new InstrumentedHandler("events", new EventsHandler(manager,
+                    EventsHandler.DEFAULT_BUFFER_SIZE, maxSubscribers, EventsHandler.DEFAULT_HEARTBEAT), metrics));
+        }
+        if (boards != null) {
+            server.createContext("/boards", new InstrumentedHandler("boards", new BoardsHandler(boards, gson), metrics));
+        }
+        server.createContext("/metrics", new MetricsHandler(metrics));
+    }
+
+    // Размеры коллекций читаются из неизменяемого среза доски и не блокируют запись
+    private static List<Metrics.Gauge> registerGauges(TaskManager manager, Metrics metrics) {
+        String help = "Число задач на доске по типам";
+        return List.of(
+                metrics.gauge("kanban_entities", help, () -> manager.getTasks().size(), "type", "task"),
+                metrics.gauge("kanban_entities", help, () -> manager.getEpics().size(), "type", "epic"),
+                metrics.gauge("kanban_entities", help, () -> manager.getSubtasks().size(), "type", "subtask"));
     }
 
     public void start() {
-        System.out.println("HTTP-сервер запущен на порту 8080");
+        System.out.println("HTTP-сервер запущен на порту " + settings.getPort() + " (" + settings.getExecutionMode() + ")");
         server.start();
     }
 
+    // Перестаёт принимать соединения и даёт начатым запросам завершиться за shutdownDrain
+    // HttpServer.stop ждёт целые секунды, поэтому доля секунды округляется вверх: иначе drain меньше
+    // секунды превратился бы в stop(0). Пул потоков ждёт только то, что осталось от общего срока
     public void stop() {
-        server.stop(1);
+        Duration drain = settings.getShutdownDrain();
+        long deadline = System.nanoTime() + drain.toNanos();
+        long seconds = drain.toNanosPart() == 0 ? drain.toSeconds() : drain.toSeconds() + 1;
+        server.stop((int) Math.max(0, Math.min(Integer.MAX_VALUE, seconds)));
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Остановленный сервер не должен держать менеджер через реестр метрик процесса
+        gauges.forEach(Metrics.Gauge::unregister);
         System.out.println("HTTP-сервер остановлен");
     }
 
     public static Gson buildGson() {
+        return buildGson(true);
+    }
+
+    public static Gson buildGson(boolean prettyPrinting) {
         GsonBuilder gsonBuilder = new GsonBuilder();
 
         gsonBuilder.registerTypeAdapter(Duration.class, new JsonSerializer<Duration>() {
@@ -62,14 +133,22 @@ public class HttpTaskServer {
             }
         });
 
-        gsonBuilder.setPrettyPrinting();
+        if (prettyPrinting) {
+            gsonBuilder.setPrettyPrinting();
+        }
         return gsonBuilder.create();
     }
 
     public static void main(String[] args) throws IOException {
-        TaskManager manager = Managers.getDefault();
-        Gson gson = HttpTaskServer.buildGson();
-        new HttpTaskServer(manager, gson).start();
+        TaskManager manager = Managers.getConcurrent();
+        HttpServerSettings settings = HttpServerSettings.fromSystemProperties();
+        Gson gson = HttpTaskServer.buildGson(settings.isPrettyJson());
+        BoardRegistry boards = System.getProperty("kanban.boards.dir") != null ? BoardRegistry.fromSystemProperties() : null;
+        if (boards != null) {
+            boards.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(boards::close));
+        }
+        new HttpTaskServer(manager, gson, settings, boards).start();
     }
 }
 
@@ -1,14 +1,28 @@
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import org.junit.jupiter.api.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -100,4 +114,403 @@ public class HttpTaskServerTasksTest {
 
         assertEquals(404, response.statusCode(), "Ожидался код 404 для несуществующей задачи");
     }
+
+    @Test
+    public void shouldStreamLargeTaskListAsCompactJson() throws IOException, InterruptedException {
+        server.stop();
+        server = new HttpTaskServer(manager, HttpTaskServer.buildGson(false), HttpServerSettings.defaults());
+        server.start();
+        for (int i = 0; i < 2_000; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Streaming", TaskStatus.NEW));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Length").isEmpty(),
+                "Список должен передаваться чанками без Content-Length");
+        assertFalse(response.body().contains("\n"), "В компактном режиме JSON не должен содержать переносов строк");
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(2_000, tasks.length, "Некорректное количество задач в ответе");
+    }
+
+    @Test
+    public void shouldReturnTaskPagesByCursor() throws IOException, InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Paging", TaskStatus.NEW));
+        }
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=2")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, first.statusCode());
+        JsonObject firstPage = gson.fromJson(first.body(), JsonObject.class);
+        assertEquals(2, firstPage.getAsJsonArray("items").size());
+        String cursor = firstPage.get("nextCursor").getAsString();
+
+        HttpResponse<String> second = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=2&cursor=" + cursor)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonObject secondPage = gson.fromJson(second.body(), JsonObject.class);
+        assertEquals(1, secondPage.getAsJsonArray("items").size());
+        assertFalse(secondPage.has("nextCursor"), "На последней странице курсора быть не должно");
+
+        HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=0")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode());
+    }
+
+    @Test
+    public void shouldReturnPrioritizedTasksInTimeWindow() throws IOException, InterruptedException {
+        LocalDateTime monday = LocalDateTime.of(2025, 3, 3, 10, 0);
+        manager.createTask(new Task(0, "This week", "Calendar", TaskStatus.NEW, Duration.ofMinutes(60), monday));
+        manager.createTask(new Task(0, "Next week", "Calendar", TaskStatus.NEW, Duration.ofMinutes(60),
+                monday.plusWeeks(1)));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=2025-03-03T00:00&to=2025-03-10T00:00"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(1, tasks.length);
+        assertEquals("This week", tasks[0].getTitle());
+
+        HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?to=2025-03-10T00:00")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode());
+    }
+
+    @Test
+    public void shouldReturnEarliestFreeSlot() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 3, 10, 0);
+        manager.createTask(new Task(0, "Busy", "Slot", TaskStatus.NEW, Duration.ofMinutes(60), start));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/free-slot?after=2025-03-03T10:30&duration=30"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        JsonObject slot = gson.fromJson(response.body(), JsonObject.class);
+        assertEquals("2025-03-03T11:00:00", slot.get("start").getAsString());
+        assertEquals("2025-03-03T11:30:00", slot.get("end").getAsString());
+    }
+
+    @Test
+    public void shouldImportNdjsonBatchWithPerItemResults() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 3, 10, 0);
+        String body = gson.toJson(new Task(0, "First", "Import", TaskStatus.NEW, Duration.ofMinutes(60), start))
+                .replace("\n", "") + "\n"
+                + "{not json}\n"
+                + "\n"
+                + gson.toJson(new Task(0, "Overlap", "Import", TaskStatus.NEW, Duration.ofMinutes(30),
+                start.plusMinutes(30))).replace("\n", "") + "\n"
+                + gson.toJson(new Task(0, "Untimed", "Import", TaskStatus.NEW)).replace("\n", "") + "\n";
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/batch?chunk=2"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Integer> statuses = new ArrayList<>();
+        for (String line : response.body().split("\n")) {
+            statuses.add(gson.fromJson(line, JsonObject.class).get("status").getAsInt());
+        }
+        assertEquals(List.of(400, 201, 406, 201), statuses, "Ошибки разбора отдаются сразу, остальные — после пачки");
+        assertEquals(2, manager.getTasks().size());
+    }
+
+    @Test
+    public void shouldReportBadLinesAndMissingEpicPerItemAndContinueImport() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 3, 10, 0);
+        String before = gson.toJson(new Task(0, "Before", "Import", TaskStatus.NEW, Duration.ofMinutes(30), start))
+                .replace("\n", "");
+        String after = gson.toJson(new Task(0, "After", "Import", TaskStatus.NEW, Duration.ofMinutes(30),
+                start.plusHours(1))).replace("\n", "");
+        String badStart = "{\"title\":\"Bad\",\"description\":\"Import\",\"status\":\"NEW\","
+                + "\"duration\":30,\"startTime\":\"вчера\"}";
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> tasks = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(before + "\n" + badStart + "\n" + after + "\n"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, tasks.statusCode());
+        String[] lines = tasks.body().split("\n");
+        assertEquals(3, lines.length, "На каждую строку запроса — строка результата: " + tasks.body());
+        JsonObject bad = gson.fromJson(lines[0], JsonObject.class);
+        assertEquals(2, bad.get("line").getAsInt());
+        assertEquals(400, bad.get("status").getAsInt());
+        assertEquals(201, gson.fromJson(lines[1], JsonObject.class).get("status").getAsInt());
+        assertEquals(201, gson.fromJson(lines[2], JsonObject.class).get("status").getAsInt());
+        assertEquals(2, manager.getTasks().size());
+
+        String orphan = gson.toJson(new Subtask(0, "Orphan", "Import", TaskStatus.NEW, 999)).replace("\n", "");
+        HttpResponse<String> subtasks = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(orphan + "\n"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, subtasks.statusCode());
+        assertEquals(400, gson.fromJson(subtasks.body().trim(), JsonObject.class).get("status").getAsInt(),
+                "Ссылка на несуществующий эпик — неверные данные, а не пересечение");
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWhileTasksAreUnchanged() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Polled", "ETag", TaskStatus.NEW));
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:8080/tasks");
+
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> unchanged = client.send(HttpRequest.newBuilder().uri(uri)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, unchanged.statusCode());
+        assertTrue(unchanged.body().isEmpty());
+
+        manager.createTask(new Task(0, "New", "ETag", TaskStatus.NEW));
+        HttpResponse<String> changed = client.send(HttpRequest.newBuilder().uri(uri)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        assertEquals(2, gson.fromJson(changed.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldRecordViewInHistoryWhenAnsweringNotModified() throws IOException, InterruptedException {
+        Task first = new Task(0, "First", "ETag", TaskStatus.NEW);
+        manager.createTask(first);
+        Task second = new Task(0, "Second", "ETag", TaskStatus.NEW);
+        manager.createTask(second);
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:8080/tasks/" + first.getId());
+
+        HttpResponse<String> full = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = full.headers().firstValue("ETag").orElseThrow();
+        manager.getTask(second.getId());
+
+        HttpResponse<String> unchanged = client.send(HttpRequest.newBuilder().uri(uri)
+                .header("If-None-Match", etag).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, unchanged.statusCode());
+        assertEquals(List.of(second.getId(), first.getId()), manager.getHistory().stream().map(Task::getId).toList(),
+                "Условный GET с ответом 304 — тоже просмотр задачи");
+    }
+
+    @Test
+    public void shouldExposeRequestMetricsInPrometheusFormat() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Measured", "Metrics", TaskStatus.NEW));
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/tasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/metrics")).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/plain"));
+        String body = response.body();
+        assertTrue(body.contains("# TYPE kanban_http_request_duration_seconds histogram"), body);
+        assertTrue(body.contains("kanban_http_requests_total{handler=\"tasks\",method=\"GET\",code=\"200\"}"), body);
+        assertTrue(body.contains("kanban_http_request_duration_seconds_bucket{handler=\"tasks\",method=\"GET\",le=\"+Inf\"}"), body);
+        assertTrue(body.contains("kanban_entities{type=\"task\"} 1"), body);
+    }
+
+    @Test
+    public void shouldHandleConcurrentRequests() {
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Task task = new Task(0, "Task " + i, "HTTP test", TaskStatus.NEW);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+        assertEquals(20, manager.getTasks().size(), "Все параллельные запросы должны создать задачи");
+    }
+
+    @Test
+    public void shouldRouteBoardsToIndependentManagersAndReloadEvicted() throws IOException, InterruptedException {
+        server.stop();
+        File dir = Files.createTempDirectory("boards").toFile();
+        // Бюджет в одну доску: загрузка второй выгружает первую на диск
+        try (BoardRegistry boards = new BoardRegistry(dir, BoardRegistry.defaultSettings(), Duration.ofHours(1), 1)) {
+            server = new HttpTaskServer(manager, gson, HttpServerSettings.defaults(), boards);
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+
+            for (String board : List.of("alpha", "beta")) {
+                Task task = new Task(0, "Task " + board, "Boards", TaskStatus.NEW);
+                HttpResponse<String> created = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/boards/" + board + "/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task))).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(201, created.statusCode());
+            }
+            assertFalse(boards.isLoaded("alpha"), "Доска сверх бюджета должна быть выгружена");
+            assertTrue(boards.fileFor("alpha").exists(), "Выгруженная доска должна быть записана на диск");
+            assertEquals(1, boards.loadedBoards());
+
+            for (String board : List.of("alpha", "beta")) {
+                HttpResponse<String> list = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/boards/" + board + "/tasks")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                Task[] tasks = gson.fromJson(list.body(), Task[].class);
+                assertEquals(1, tasks.length, "У каждой доски свои задачи");
+                assertEquals("Task " + board, tasks[0].getTitle());
+                client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/boards/" + board + "/tasks/" + tasks[0].getId())).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+            }
+            HttpResponse<String> history = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/boards/beta/history")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, history.statusCode());
+            assertEquals(1, gson.fromJson(history.body(), Task[].class).length);
+            assertTrue(manager.getTasks().isEmpty(), "Доски не должны затрагивать основной менеджер");
+
+            HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/boards/bad.id/tasks")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, invalid.statusCode());
+            HttpResponse<String> unknown = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/boards/alpha/unknown")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, unknown.statusCode());
+
+            Files.writeString(boards.fileFor("broken").toPath(),
+                    "id,type,name,status,description,epic,duration,startTime\nnot-a-number,TASK,T,NEW,D,,0,\n");
+            HttpResponse<String> broken = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/boards/broken/tasks")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(500, broken.statusCode(), "Повреждённый файл доски должен давать 500, а не обрыв соединения");
+        }
+    }
+
+    @Test
+    public void shouldPushChangeEventsToSubscribers() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<Stream<String>> stream = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/events")).GET().build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, stream.statusCode());
+        assertTrue(stream.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+
+        Task task = new Task(0, "Pushed", "SSE", TaskStatus.NEW);
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, created.statusCode());
+
+        try (Stream<String> lines = stream.body()) {
+            Iterator<String> iterator = lines.iterator();
+            List<String> event = CompletableFuture.supplyAsync(() -> {
+                List<String> block = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (line.isEmpty() && !block.isEmpty() && !block.get(0).startsWith(":")) {
+                        return block;
+                    }
+                    if (line.isEmpty()) {
+                        block.clear();
+                    } else {
+                        block.add(line);
+                    }
+                }
+                return block;
+            }).get(5, TimeUnit.SECONDS);
+
+            int id = manager.getTasks().get(0).getId();
+            assertEquals("id: " + manager.getVersion(TaskType.TASK), event.get(0));
+            assertEquals("event: created", event.get(1));
+            JsonObject data = gson.fromJson(event.get(2).substring("data: ".length()), JsonObject.class);
+            assertEquals("TASK", data.get("type").getAsString());
+            assertEquals(id, data.get("id").getAsInt());
+        }
+    }
+
+    @Test
+    public void shouldDisconnectSubscriberThatStopsReading() throws Exception {
+        Task task = new Task(0, "Busy", "SSE", TaskStatus.NEW);
+        manager.createTask(task);
+        HttpClient client = HttpClient.newHttpClient();
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", 8080));
+            socket.getOutputStream().write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            // Дочитываем только до подтверждения подписки, дальше клиент не читает
+            InputStream in = socket.getInputStream();
+            StringBuilder head = new StringBuilder();
+            while (head.indexOf(": subscribed") < 0) {
+                head.append((char) in.read());
+            }
+
+            boolean disconnected = false;
+            for (int round = 0; round < 200 && !disconnected; round++) {
+                for (int i = 0; i < 5_000; i++) {
+                    manager.updateTask(task);
+                }
+                Thread.sleep(50);
+                String metrics = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/metrics")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()).body();
+                disconnected = metrics.contains("kanban_sse_subscribers 0");
+            }
+            assertTrue(disconnected, "Зависший подписчик должен освободить поток и место подписчика");
+
+            socket.setSoTimeout(5_000);
+            byte[] buffer = new byte[1 << 16];
+            boolean closed;
+            try {
+                while (in.read(buffer) != -1) {
+                    // остаток событий, успевших уйти до отключения
+                }
+                closed = true;
+            } catch (SocketException e) {
+                closed = true;
+            } catch (SocketTimeoutException e) {
+                closed = false;
+            }
+            assertTrue(closed, "Сервер должен закрыть соединение зависшего подписчика");
+        }
+    }
+
+    @Test
+    public void shouldReadSubSecondShutdownDrainFromSystemProperties() {
+        try {
+            System.setProperty("kanban.http.drainSeconds", "3");
+            assertEquals(Duration.ofSeconds(3), HttpServerSettings.fromSystemProperties().getShutdownDrain());
+            System.setProperty("kanban.http.drainMillis", "250");
+            assertEquals(Duration.ofMillis(250), HttpServerSettings.fromSystemProperties().getShutdownDrain(),
+                    "Миллисекунды должны иметь приоритет над секундами");
+        } finally {
+            System.clearProperty("kanban.http.drainSeconds");
+            System.clearProperty("kanban.http.drainMillis");
+        }
+    }
 }
@@ -14,7 +14,7 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final IntObjectHashMap<Node> historyMap = new IntObjectHashMap<>();
     private Node head;
     private Node tail;
 
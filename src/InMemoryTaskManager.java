@@ -1,40 +1,169 @@
-import java.util.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class InMemoryTaskManager implements EpicScopedTaskManager {
+
+    // С какого числа подзадач свёртки эпиков при массовой загрузке считаются параллельно
+    private static final int PARALLEL_ROLLUP_THRESHOLD = 10_000;
 
-public class InMemoryTaskManager implements TaskManager {
+    private static final Metrics.Histogram CONFLICT_CHECKS = Metrics.global().histogram(
+            "kanban_conflict_check_duration_seconds", "Время проверки пересечений по времени");
+    private static final Metrics.Counter CONFLICTS = Metrics.global().counter(
+            "kanban_conflicts_total", "Число отклонённых из-за пересечения задач");
+    private static final Metrics.Histogram SNAPSHOT_REBUILDS = Metrics.global().histogram(
+            "kanban_board_snapshot_rebuild_duration_seconds", "Время пересборки среза доски для чтения");
+    private static final Metrics.Counter[] CHANGES = new Metrics.Counter[TaskType.values().length];
 
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected TreeSet<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime, Comparator.nullsLast(LocalDateTime::compareTo)).thenComparing(Task::getId));
+    static {
+        for (TaskType type : TaskType.values()) {
+            CHANGES[type.ordinal()] = Metrics.global().counter("kanban_changes_total",
+                    "Число изменений коллекций доски", "type", type.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    // Упорядочены по id: на этом держится постраничное чтение по курсору
+    private final IntObjectHashMap<Task> tasks = IntObjectHashMap.sortedByKey();
+    private final IntObjectHashMap<Epic> epics = IntObjectHashMap.sortedByKey();
+    private final IntObjectHashMap<Subtask> subtasks = IntObjectHashMap.sortedByKey();
+    protected final TimeIntervalIndex prioritizedTasks = new TimeIntervalIndex();
+    // Статус, время и подзадачи эпика ведёт только его свёртка, а хранимый эпик их не обновляет: наружу
+    // уходят копии (см. detach), которые заполняются по свёртке в момент чтения
+    private final IntObjectHashMap<EpicRollup> epicRollups = new IntObjectHashMap<>();
 
     private int nextId = 1;
+    // volatile: ConcurrentTaskManager сверяет с ним опубликованный срез без блокировки
+    private volatile long clock;
+    private final long[] collectionVersions = new long[TaskType.values().length];
+
+    private volatile BoardSnapshot snapshot = BoardSnapshot.EMPTY;
+    private final ChangeListeners listeners = new ChangeListeners();
 
-    protected final HistoryManager historyManager = Managers.getDefaultHistory();
+    protected final HistoryManager historyManager;
+
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
 
     private int generateId() {
         return nextId++;
     }
 
+    private void reserveId(int id) {
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return snapshot().prioritized();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return snapshot().tasks();
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return snapshot().epics();
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return snapshot().subtasks();
+    }
+
+    // Срез на текущую версию: пересобирается при первом чтении после изменений.
+    // Вызывать при неизменной доске — одновременные пересборки дадут равные срезы
+    public BoardSnapshot snapshot() {
+        BoardSnapshot current = snapshot;
+        long version = clock;
+        if (current.version() != version) {
+            long started = System.nanoTime();
+            current = current.next(version, collectionVersions, tasks.values(), epics.values(),
+                    subtasks.values(), prioritizedTasks, this::detach);
+            snapshot = current;
+            SNAPSHOT_REBUILDS.recordSince(started);
+        }
+        return current;
+    }
+
+    // Опубликованный срез, если после него доска не менялась, иначе null; безопасно вызывать без блокировок
+    public BoardSnapshot publishedSnapshot() {
+        BoardSnapshot current = snapshot;
+        return current.version() == clock ? current : null;
+    }
+
     @Override
-    public ArrayList<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+    public Page<Task> getTasks(int limit, String cursor) {
+        return pageById(tasks, limit, cursor);
     }
 
     @Override
-    public ArrayList<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+    public Page<Task> getPrioritizedTasks(int limit, String cursor) {
+        PageCursor.checkLimit(limit);
+        List<Task> items = new ArrayList<>();
+        TimeIntervalIndex.Interval last = null;
+        Iterator<TimeIntervalIndex.Interval> iterator = prioritizedTasks.after(PageCursor.decodeInterval(cursor)).iterator();
+        while (iterator.hasNext() && items.size() < limit) {
+            last = iterator.next();
+            items.add(last.task());
+        }
+        return new Page<>(items, iterator.hasNext() ? PageCursor.ofInterval(last) : null);
+    }
+
+    @Override
+    public Page<Epic> getEpics(int limit, String cursor) {
+        Page<Epic> page = pageById(epics, limit, cursor);
+        return new Page<>(page.items().stream().map(this::detach).toList(), page.nextCursor());
     }
 
     @Override
-    public ArrayList<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+    public Page<Subtask> getSubtasks(int limit, String cursor) {
+        return pageById(subtasks, limit, cursor);
     }
 
     @Override
-    public ArrayList<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks.values());
+    public ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to, int limit) {
+        return firstTasks(prioritizedTasks.overlapping(from, to), limit);
+    }
+
+    @Override
+    public ArrayList<Task> getTasksStartingFrom(LocalDateTime time, int limit) {
+        return firstTasks(prioritizedTasks.startingFrom(time), limit);
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, WorkingHours hours) {
+        return prioritizedTasks.findFreeSlot(after, duration, hours);
+    }
+
+    private static ArrayList<Task> firstTasks(Iterable<TimeIntervalIndex.Interval> intervals, int limit) {
+        PageCursor.checkLimit(limit);
+        ArrayList<Task> result = new ArrayList<>();
+        for (TimeIntervalIndex.Interval interval : intervals) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(interval.task());
+        }
+        return result;
+    }
+
+    // Стоимость — O(log n + limit), независимо от размера доски
+    private static <T extends Task> Page<T> pageById(IntObjectHashMap<T> source, int limit, String cursor) {
+        PageCursor.checkLimit(limit);
+        List<T> items = new ArrayList<>();
+        Iterator<T> iterator = source.valuesAfter(PageCursor.decodeId(cursor));
+        while (iterator.hasNext() && items.size() < limit) {
+            items.add(iterator.next());
+        }
+        return new Page<>(items, iterator.hasNext() ? PageCursor.ofId(items.get(items.size() - 1).getId()) : null);
     }
 
     @Override
@@ -52,7 +181,7 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic != null) {
             historyManager.add(epic);
-            return Optional.of(epic);
+            return Optional.of(detach(epic));
         }
         return Optional.empty();
     }
@@ -71,76 +200,118 @@ public class InMemoryTaskManager implements TaskManager {
     public void createTask(Task task) {
         task.setId(generateId());
         checkIntersection(task);
-        if (hasIntersection(task)) {
-            throw new IllegalArgumentException("Задача пересекается по времени с другой задачей");
-        }
 
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) prioritizedTasks.add(task);
+        prioritizedTasks.put(task);
+        touch(TaskType.TASK, task);
+        publish(TaskEvent.Action.CREATED, TaskType.TASK, task.getId());
     }
 
     @Override
     public void createEpic(Epic epic) {
         epic.setId(generateId());
-        epics.put(epic.getId(), epic);
+        rollupOf(epic).applyTo(epic);
+        touch(TaskType.EPIC, epic);
+        // Переданный эпик остаётся у вызывающего, поэтому хранится копия
+        epics.put(epic.getId(), new Epic(epic));
+        publish(TaskEvent.Action.CREATED, TaskType.EPIC, epic.getId());
     }
 
     @Override
     public void createSubtask(Subtask subtask) {
+        createSubtaskOnBoard(subtask).apply().run();
+    }
+
+    @Override
+    public EpicChange createSubtaskOnBoard(Subtask subtask) {
         if (!epics.containsKey(subtask.getEpicId()) || subtask.getEpicId() == subtask.getId()) {
             throw new IllegalArgumentException("Epic с id=" + subtask.getEpicId() + " не найден");
         }
 
         subtask.setId(generateId());
         checkIntersection(subtask);
-        if (hasIntersection(subtask)) {
-            throw new IllegalArgumentException("Задача пересекается по времени с другой задачей");
-        }
 
         subtasks.put(subtask.getId(), subtask);
 
         Epic epic = epics.get(subtask.getEpicId());
-        if (subtask.getStartTime() != null) prioritizedTasks.add(subtask);
-        epic.addSubtask(subtask);
-        epic.recalculateTimeAndDuration(subtasks);
-        recalculateEpicStatus(epic);
+        prioritizedTasks.put(subtask);
+        subtask.setListedEpicId(epic.getId());
+        EpicRollup rollup = rollupOf(epic);
+        touch(TaskType.SUBTASK, subtask);
+        touch(TaskType.EPIC, epic);
+        publish(TaskEvent.Action.CREATED, TaskType.SUBTASK, subtask.getId());
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epic.getId());
+        return new EpicChange(new int[]{epic.getId()}, () -> rollup.put(subtask));
     }
 
     @Override
     public void updateTask(Task task) {
         if (task == null || !tasks.containsKey(task.getId())) return;
         checkIntersection(task);
-        if (hasIntersection(task)) {
-            throw new IllegalArgumentException("Задача пересекается по времени с другой задачей");
-        }
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) prioritizedTasks.add(task);
+        prioritizedTasks.put(task);
+        touch(TaskType.TASK, task);
+        publish(TaskEvent.Action.UPDATED, TaskType.TASK, task.getId());
     }
 
     @Override
     public void updateEpic(Epic epic) {
         if (epic == null || !epics.containsKey(epic.getId())) return;
-        epics.put(epic.getId(), epic);
+        // статус, время и подзадачи эпика вычисляет менеджер, поэтому обновляем только название и описание
+        Epic saved = epics.get(epic.getId());
+        saved.setTitle(epic.getTitle());
+        saved.setDescription(epic.getDescription());
+        touch(TaskType.EPIC, saved);
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, saved.getId());
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        if (subtask == null || !subtasks.containsKey(subtask.getId())) return;
+        updateSubtaskOnBoard(subtask).apply().run();
+    }
+
+    @Override
+    public EpicChange updateSubtaskOnBoard(Subtask subtask) {
+        if (subtask == null || !subtasks.containsKey(subtask.getId())) return EpicChange.NONE;
         Epic epic = epics.get(subtask.getEpicId());
-        if (epic == null) return;
+        if (epic == null) return EpicChange.NONE;
         checkIntersection(subtask);
-        if (hasIntersection(subtask)) {
-            throw new IllegalArgumentException("Задача пересекается по времени с другой задачей");
-        }
 
-        subtasks.put(subtask.getId(), subtask);
-        epic.recalculateTimeAndDuration(subtasks);
-        recalculateEpicStatus(epic);
+        // При переносе в другой эпик вклад и id подзадачи уходят из старого
+        int id = subtask.getId();
+        Epic previous = epics.get(epicOfSubtask(id));
+        boolean moved = previous != null && previous != epic;
+        EpicRollup previousRollup = moved ? rollupOf(previous) : null;
+        if (moved) {
+            touch(TaskType.EPIC, previous);
+        }
+        subtasks.put(id, subtask);
+        prioritizedTasks.put(subtask);
+        subtask.setListedEpicId(epic.getId());
+        EpicRollup rollup = rollupOf(epic);
+        touch(TaskType.SUBTASK, subtask);
+        touch(TaskType.EPIC, epic);
+        publish(TaskEvent.Action.UPDATED, TaskType.SUBTASK, id);
+        if (moved) {
+            publish(TaskEvent.Action.UPDATED, TaskType.EPIC, previous.getId());
+        }
+        publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epic.getId());
+        int[] epicIds = moved ? new int[]{previous.getId(), epic.getId()} : new int[]{epic.getId()};
+        return new EpicChange(epicIds, () -> {
+            if (moved) {
+                previousRollup.remove(id);
+            }
+            rollup.put(subtask);
+        });
     }
 
     @Override
     public void deleteTaskById(int id) {
-        tasks.remove(id);
+        if (tasks.remove(id) != null) {
+            touch(TaskType.TASK, null);
+            publish(TaskEvent.Action.DELETED, TaskType.TASK, id);
+        }
+        prioritizedTasks.remove(id);
         historyManager.remove(id);
     }
 
@@ -148,110 +319,302 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpicById(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
-            for (Integer subId : epic.getSubtaskIds()) {
+            EpicRollup rollup = epicRollups.remove(id);
+            int[] subtaskIds = rollup.getSubtaskIds();
+            for (int subId : subtaskIds) {
                 subtasks.remove(subId);
+                prioritizedTasks.remove(subId);
                 historyManager.remove(subId);
             }
             historyManager.remove(id);
+            touch(TaskType.EPIC, null);
+            touch(TaskType.SUBTASK, null);
+            publish(TaskEvent.Action.DELETED, TaskType.EPIC, id);
+            for (int subId : subtaskIds) {
+                publish(TaskEvent.Action.DELETED, TaskType.SUBTASK, subId);
+            }
         }
     }
 
     @Override
     public void deleteSubtaskById(int id) {
-        Subtask subtask = subtasks.remove(id);
-        if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.removeSubtask(id);
-                epic.recalculateTimeAndDuration(subtasks);
-                recalculateEpicStatus(epic);
-            }
-            historyManager.remove(id);
+        deleteSubtaskOnBoard(id).apply().run();
+    }
+
+    @Override
+    public EpicChange deleteSubtaskOnBoard(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            return EpicChange.NONE;
+        }
+        Epic epic = epics.get(subtask.getListedEpicId());
+        subtasks.remove(id);
+        prioritizedTasks.remove(id);
+        EpicChange change = EpicChange.NONE;
+        if (epic != null) {
+            EpicRollup rollup = rollupOf(epic);
+            touch(TaskType.EPIC, epic);
+            change = new EpicChange(new int[]{epic.getId()}, () -> rollup.remove(id));
+        }
+        historyManager.remove(id);
+        touch(TaskType.SUBTASK, null);
+        publish(TaskEvent.Action.DELETED, TaskType.SUBTASK, id);
+        if (epic != null) {
+            publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epic.getId());
         }
+        return change;
     }
 
     @Override
     public void deleteTasks() {
+        tasks.forEachKey(prioritizedTasks::remove);
         tasks.clear();
+        touch(TaskType.TASK, null);
+        publish(TaskEvent.Action.CLEARED, TaskType.TASK, 0);
     }
 
     @Override
     public void deleteSubtasks() {
+        subtasks.forEachKey(prioritizedTasks::remove);
         subtasks.clear();
+        for (Epic epic : epics.values()) {
+            rollupOf(epic).clear();
+            touch(TaskType.EPIC, epic);
+        }
+        touch(TaskType.SUBTASK, null);
+        touch(TaskType.EPIC, null);
+        publish(TaskEvent.Action.CLEARED, TaskType.SUBTASK, 0);
+        for (Epic epic : epics.values()) {
+            publish(TaskEvent.Action.UPDATED, TaskType.EPIC, epic.getId());
+        }
     }
 
     @Override
     public void deleteEpics() {
         epics.clear();
+        epicRollups.clear();
+        touch(TaskType.EPIC, null);
+        publish(TaskEvent.Action.CLEARED, TaskType.EPIC, 0);
     }
 
     @Override
     public ArrayList<Subtask> getEpicSubtasks(int epicId) {
-        return subtasks.values().stream().filter(subtask -> subtask.getEpicId() == epicId).collect(Collectors.toCollection(ArrayList::new));
+        EpicRollup rollup = epicRollups.get(epicId);
+        if (rollup == null) {
+            return new ArrayList<>();
+        }
+        ArrayList<Subtask> result = new ArrayList<>(rollup.size());
+        for (int subId : rollup.getSubtaskIds()) {
+            Subtask subtask = subtasks.get(subId);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
     }
 
     @Override
     public ArrayList<Task> getHistory() {
-        return new ArrayList<>(historyManager.getHistory());
+        ArrayList<Task> history = new ArrayList<>(historyManager.getHistory());
+        history.replaceAll(task -> task instanceof Epic epic ? detach(epic) : task);
+        return history;
+    }
+
+    @Override
+    public boolean splitsSubtaskWrites() {
+        return true;
+    }
+
+    @Override
+    public int epicOfSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        return subtask != null ? subtask.getListedEpicId() : 0;
+    }
+
+    @Override
+    public long getVersion(TaskType type) {
+        return collectionVersions[type.ordinal()];
     }
 
+    @Override
+    public long getVersion(TaskType type, int id) {
+        Task task = switch (type) {
+            case TASK -> tasks.get(id);
+            case EPIC -> epics.get(id);
+            case SUBTASK -> subtasks.get(id);
+        };
+        return task != null ? task.getVersion() : 0;
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Уведомления отправляются после всех touch изменения и несут итоговую версию доски.
+    // Загрузка через restore* уведомлений не порождает
+    private void publish(TaskEvent.Action action, TaskType type, int id) {
+        listeners.publish(action, type, id, clock);
+    }
+
+    // Отмечает изменение коллекции type и, если задана, задачи entity
+    private void touch(TaskType type, Task entity) {
+        clock++;
+        collectionVersions[type.ordinal()] = clock;
+        CHANGES[type.ordinal()].increment();
+        if (entity != null) {
+            entity.setVersion(clock);
+        }
+    }
+
+    // Интервалы полуоткрытые: задача, начинающаяся ровно в момент окончания другой, не пересекается с ней
     public static boolean isIntersecting(Task t1, Task t2) {
         if (t1.getStartTime() == null || t1.getEndTime() == null || t2.getStartTime() == null || t2.getEndTime() == null) {
             return false;
         }
-        return !t1.getEndTime().isBefore(t2.getStartTime()) && !t1.getStartTime().isAfter(t2.getEndTime());
+        return t1.getStartTime().isBefore(t2.getEndTime()) && t2.getStartTime().isBefore(t1.getEndTime());
     }
 
-    private boolean hasIntersection(Task task) {
-        return getPrioritizedTasks().stream().filter(t -> t.getId() != task.getId()).anyMatch(t -> isIntersecting(t, task));
+    public boolean isHistoryThreadSafe() {
+        return historyManager.isThreadSafe();
     }
 
     public List<Task> getAllTasks() {
-        List<Task> all = new ArrayList<>();
-        all.addAll(tasks.values());
-        all.addAll(epics.values());
-        all.addAll(subtasks.values());
-        return all;
+        return snapshot().allTasks();
+    }
+
+    // restore* сохраняют переданные id и сдвигают счётчик, чтобы новые id с ними не совпадали
+    public void restoreTask(Task task) {
+        tasks.put(task.getId(), task);
+        prioritizedTasks.put(task);
+        reserveId(task.getId());
+        touch(TaskType.TASK, task);
     }
 
     public void restoreEpic(Epic epic) {
+        epic.clearSubtasks();
         epics.put(epic.getId(), epic);
-        prioritizedTasks.add(epic); // если нужно
+        rollupOf(epic);
+        reserveId(epic.getId());
+        touch(TaskType.EPIC, epic);
     }
 
     public void restoreSubtask(Subtask subtask) {
         subtasks.put(subtask.getId(), subtask);
+        prioritizedTasks.put(subtask);
+        reserveId(subtask.getId());
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
-            epic.addSubtask(subtask);
-            epic.recalculateTimeAndDuration(subtasks);
-            recalculateEpicStatus(epic);
+            subtask.setListedEpicId(epic.getId());
+            rollupOf(epic).put(subtask);
+            touch(TaskType.EPIC, epic);
         }
+        touch(TaskType.SUBTASK, subtask);
     }
 
-    private void recalculateEpicStatus(Epic epic) {
-        List<Integer> subIds = epic.getSubtaskIds();
-        if (subIds.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            return;
+    // Доверенная массовая загрузка в пустой менеджер — путь loadFromFile. Id сохраняются, пересечения
+    // не проверяются. Задачи ложатся в хранилища по возрастанию id, то есть всегда в конец, а расписание,
+    // свёртки эпиков и версии строятся один раз в конце. Свёртки разных эпиков независимы, поэтому
+    // на больших досках считаются параллельно
+    public void restoreAll(Collection<? extends Task> loaded) {
+        if (!tasks.isEmpty() || !epics.isEmpty() || !subtasks.isEmpty()) {
+            throw new IllegalStateException("Массовая загрузка возможна только в пустой менеджер");
+        }
+        Task[] sorted = loaded.toArray(new Task[0]);
+        Arrays.parallelSort(sorted, Comparator.comparingInt(Task::getId));
+        List<Task> scheduled = new ArrayList<>(sorted.length);
+        for (Task task : sorted) {
+            if (task instanceof Epic epic) {
+                epic.clearSubtasks();
+                epics.put(epic.getId(), epic);
+                epicRollups.put(epic.getId(), new EpicRollup());
+            } else if (task instanceof Subtask subtask) {
+                subtasks.put(subtask.getId(), subtask);
+                scheduled.add(subtask);
+            } else {
+                tasks.put(task.getId(), task);
+                scheduled.add(task);
+            }
+        }
+        if (sorted.length > 0) {
+            reserveId(sorted[sorted.length - 1].getId());
         }
+        prioritizedTasks.putAll(scheduled);
+        rollupAll();
+
+        clock++;
+        Arrays.fill(collectionVersions, clock);
+        for (Task task : sorted) {
+            task.setVersion(clock);
+            CHANGES[TaskType.of(task).ordinal()].increment();
+        }
+    }
 
-        List<TaskStatus> statuses = subIds.stream().map(subtasks::get)        // получаем Subtask по id
-                .filter(Objects::nonNull).map(Task::getStatus).collect(Collectors.toList());
+    // Раскладывает подзадачи по эпикам и считает свёртки с нуля: каждый поток пишет только в свои эпики,
+    // а общие хранилища в это время только читаются
+    private void rollupAll() {
+        IntObjectHashMap<List<Subtask>> children = new IntObjectHashMap<>();
+        for (Subtask subtask : subtasks.values()) {
+            if (epics.containsKey(subtask.getEpicId())) {
+                List<Subtask> list = children.get(subtask.getEpicId());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    children.put(subtask.getEpicId(), list);
+                }
+                list.add(subtask);
+            }
+        }
+        Stream<Epic> stream = Arrays.stream(epics.values().toArray(new Epic[0]));
+        if (subtasks.size() >= PARALLEL_ROLLUP_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(epic -> {
+            EpicRollup rollup = epicRollups.get(epic.getId());
+            List<Subtask> list = children.get(epic.getId());
+            if (list != null) {
+                for (Subtask subtask : list) {
+                    subtask.setListedEpicId(epic.getId());
+                    rollup.put(subtask);
+                }
+            }
+            rollup.settle();
+        });
+    }
 
-        boolean allNew = statuses.stream().allMatch(s -> s == TaskStatus.NEW);
-        boolean allDone = statuses.stream().allMatch(s -> s == TaskStatus.DONE);
+    private EpicRollup rollupOf(Epic epic) {
+        EpicRollup rollup = epicRollups.get(epic.getId());
+        if (rollup == null) {
+            rollup = new EpicRollup();
+            epicRollups.put(epic.getId(), rollup);
+        }
+        return rollup;
+    }
 
-        if (allNew) epic.setStatus(TaskStatus.NEW);
-        else if (allDone) epic.setStatus(TaskStatus.DONE);
-        else epic.setStatus(TaskStatus.IN_PROGRESS);
+    // Копия эпика для выдачи со статусом, временем и подзадачами по свёртке. Изменения подзадач свёртка только
+    // запоминает и учитывает здесь, при первом чтении: серия правок без чтений между ними эпик не
+    // пересчитывает, а эпики, которые никто не читает, не пересчитываются вовсе. Копия своя у каждого
+    // читателя, поэтому её можно сериализовать без блокировок, пока доска меняется
+    private Epic detach(Epic epic) {
+        Epic copy = new Epic(epic);
+        EpicRollup rollup = epicRollups.get(epic.getId());
+        if (rollup != null) {
+            rollup.applyTo(copy);
+        }
+        return copy;
     }
 
     private void checkIntersection(Task task) {
-        for (Task t : prioritizedTasks) {
-            if (isIntersecting(t, task)) {
-                throw new IllegalArgumentException("Задача пересекается по времени с другой задачей: " + t);
-            }
+        long started = System.nanoTime();
+        TimeIntervalIndex.Interval overlap = prioritizedTasks.findOverlap(task.getStartTime(), task.getEndTime(), task.getId());
+        CONFLICT_CHECKS.recordSince(started);
+        if (overlap != null) {
+            CONFLICTS.increment();
+            throw new TaskOverlapException("Задача пересекается по времени с другой задачей: " + overlap.task());
         }
     }
 }
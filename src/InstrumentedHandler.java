@@ -0,0 +1,72 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Обёртка обработчика, которая считает запросы по коду ответа и меряет время обработки,
+// включая отправку тела
+public class InstrumentedHandler implements HttpHandler {
+
+    // Прочие методы сводятся к OTHER, чтобы клиент не мог раздуть число рядов метрик
+    private static final Set<String> KNOWN_METHODS = Set.of("GET", "POST", "PUT", "DELETE", "HEAD");
+    private static final int MAX_CODE = 600;
+
+    private final String name;
+    private final HttpHandler delegate;
+    private final Metrics metrics;
+    // Ряды метрик по методу запроса; ищутся в реестре один раз, а не на каждом запросе
+    private final Map<String, MethodSeries> byMethod = new ConcurrentHashMap<>();
+
+    public InstrumentedHandler(String name, HttpHandler delegate, Metrics metrics) {
+        this.name = name;
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        long started = System.nanoTime();
+        try {
+            delegate.handle(h);
+        } finally {
+            String method = KNOWN_METHODS.contains(h.getRequestMethod()) ? h.getRequestMethod() : "OTHER";
+            MethodSeries series = byMethod.computeIfAbsent(method, MethodSeries::new);
+            series.duration.recordSince(started);
+            series.requests(h.getResponseCode()).increment();
+        }
+    }
+
+    private final class MethodSeries {
+        private final String method;
+        private final Metrics.Histogram duration;
+        private final AtomicReferenceArray<Metrics.Counter> byCode = new AtomicReferenceArray<>(MAX_CODE);
+
+        MethodSeries(String method) {
+            this.method = method;
+            this.duration = metrics.histogram("kanban_http_request_duration_seconds", "Время обработки HTTP-запроса",
+                    "handler", name, "method", method);
+        }
+
+        Metrics.Counter requests(int code) {
+            if (code < 0 || code >= MAX_CODE) {
+                return lookup(code);
+            }
+            Metrics.Counter counter = byCode.get(code);
+            if (counter == null) {
+                // Реестр сам возвращает один и тот же ряд, поэтому гонка здесь безвредна
+                counter = lookup(code);
+                byCode.set(code, counter);
+            }
+            return counter;
+        }
+
+        private Metrics.Counter lookup(int code) {
+            return metrics.counter("kanban_http_requests_total", "Число HTTP-запросов по коду ответа",
+                    "handler", name, "method", method, "code", Integer.toString(code));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+// Множество int в порядке добавления без упаковки — на основе IntObjectHashMap.
+// В JSON записывается обычным массивом чисел.
+public class IntLinkedSet {
+
+    private final IntObjectHashMap<Boolean> entries = new IntObjectHashMap<>();
+
+    public boolean add(int value) {
+        return entries.put(value, Boolean.TRUE) == null;
+    }
+
+    public boolean remove(int value) {
+        return entries.remove(value) != null;
+    }
+
+    public boolean contains(int value) {
+        return entries.containsKey(value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public void forEach(IntConsumer action) {
+        entries.forEachKey(action);
+    }
+
+    public int[] toArray() {
+        return entries.keys();
+    }
+
+    // Подключается к полю через @JsonAdapter, поэтому работает с любым экземпляром Gson
+    public static class GsonAdapter extends TypeAdapter<IntLinkedSet> {
+        @Override
+        public void write(JsonWriter out, IntLinkedSet set) throws IOException {
+            if (set == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int value : set.toArray()) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public IntLinkedSet read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            IntLinkedSet set = new IntLinkedSet();
+            in.beginArray();
+            while (in.hasNext()) {
+                set.add(in.nextInt());
+            }
+            in.endArray();
+            return set;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// Отображение int → объект без упаковки ключей и без объекта на каждую запись.
+// Пары лежат в плотных массивах keys/values в порядке вставки, а хеш-индекс с открытой адресацией
+// (линейное пробирование) хранит позицию пары в плотных массивах. Удаление оставляет «дырку»
+// (values[i] == null), дырки вычищаются при переполнении плотных массивов.
+// Выходит около 17 байт на запись (до вдвое больше сразу после роста) против ~56 у HashMap<Integer, V>
+// и TreeMap<Integer, V> — см. bench/MemoryFootprint.
+// В режиме sortedByKey плотные массивы упорядочены по ключу: это даёт обход по возрастанию
+// и valuesAfter за O(log n). Ключ меньше последнего дописывается в неупорядоченный «хвост» за O(1);
+// обход сливает хвост с упорядоченной частью на лету, не меняя карту, а сам хвост вливается в неё
+// одним проходом, когда вырастает до ~√n. Так вставка n ключей в любом порядке стоит O(n·√n),
+// а не O(n²), но режим по-прежнему рассчитан на ключи, которые почти всегда растут, — как id задач.
+// Не потокобезопасно; null в качестве значения не допускается.
+public class IntObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MIN_TAIL = 32;
+
+    private final boolean sortedByKey;
+    private int[] keys;
+    private Object[] values;
+    // Позиция в плотных массивах + 1; 0 — свободная ячейка. Длина — степень двойки, заполнение не выше 1/2
+    private int[] index;
+    private int end;
+    // Для sortedByKey: [0, sortedEnd) упорядочено по ключу, [sortedEnd, end) — хвост в порядке вставки
+    private int sortedEnd;
+    private int size;
+
+    public IntObjectHashMap() {
+        this(false);
+    }
+
+    private IntObjectHashMap(boolean sortedByKey) {
+        this.sortedByKey = sortedByKey;
+        this.keys = new int[MIN_CAPACITY];
+        this.values = new Object[MIN_CAPACITY];
+        this.index = new int[MIN_CAPACITY * 2];
+    }
+
+    public static <V> IntObjectHashMap<V> sortedByKey() {
+        return new IntObjectHashMap<>(true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int position = find(key);
+        return position >= 0 ? (V) values[position] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        int position = find(key);
+        if (position >= 0) {
+            V previous = (V) values[position];
+            values[position] = value;
+            return previous;
+        }
+        if (end == keys.length) {
+            ensureDenseCapacity();
+        }
+        keys[end] = key;
+        values[end] = value;
+        end++;
+        link(key, end);
+        size++;
+        if (!sortedByKey || (sortedEnd == end - 1 && (end == 1 || key > keys[end - 2]))) {
+            sortedEnd = end;
+        } else if (sortedByKey && end - sortedEnd > Math.max(MIN_TAIL, (int) Math.sqrt(end))) {
+            mergeTail();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (keys[position] == key && values[position] != null) {
+                V previous = (V) values[position];
+                values[position] = null;
+                size--;
+                unlink(slot);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, end, null);
+        Arrays.fill(index, 0);
+        end = 0;
+        sortedEnd = 0;
+        size = 0;
+    }
+
+    // Ключи в том же порядке, что и values()
+    public void forEachKey(IntConsumer action) {
+        Cursor cursor = new Cursor(0, Long.MIN_VALUE);
+        for (int position = cursor.next(); position >= 0; position = cursor.next()) {
+            action.accept(keys[position]);
+        }
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        Cursor cursor = new Cursor(0, Long.MIN_VALUE);
+        for (int position = cursor.next(); position >= 0; position = cursor.next()) {
+            result[n++] = keys[position];
+        }
+        return result;
+    }
+
+    // Значения в порядке хранения: вставки, а для sortedByKey — возрастания ключа
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator(new Cursor(0, Long.MIN_VALUE));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Значения с ключом строго больше key по возрастанию ключа — только для sortedByKey
+    public Iterator<V> valuesAfter(int key) {
+        if (!sortedByKey) {
+            throw new IllegalStateException("Обход по ключу доступен только для sortedByKey");
+        }
+        return new ValueIterator(new Cursor(upperBound(key), key));
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private final Cursor cursor;
+        private int next;
+
+        ValueIterator(Cursor cursor) {
+            this.cursor = cursor;
+            next = cursor.next();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) values[next];
+            next = cursor.next();
+            return value;
+        }
+    }
+
+    // Позиции живых записей в порядке обхода: упорядоченная часть с позиции from, слитая
+    // с отсортированной копией позиций хвоста, у которых ключ больше after. Карту не меняет
+    private class Cursor {
+        private final int[] tail;
+        private int main;
+        private int tailNext;
+
+        Cursor(int from, long after) {
+            main = from;
+            int[] positions = new int[end - sortedEnd];
+            int n = 0;
+            for (int i = sortedEnd; i < end; i++) {
+                if (values[i] != null && keys[i] > after) {
+                    positions[n++] = i;
+                }
+            }
+            tail = sortByKey(positions, n);
+        }
+
+        // -1, когда записи кончились
+        int next() {
+            while (main < sortedEnd && values[main] == null) {
+                main++;
+            }
+            while (tailNext < tail.length && values[tail[tailNext]] == null) {
+                tailNext++;
+            }
+            boolean hasMain = main < sortedEnd;
+            boolean hasTail = tailNext < tail.length;
+            if (hasMain && (!hasTail || keys[main] < keys[tail[tailNext]])) {
+                return main++;
+            }
+            return hasTail ? tail[tailNext++] : -1;
+        }
+    }
+
+    private int find(int key) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (keys[position] == key && values[position] != null) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Первая позиция упорядоченной части с ключом больше key; дырки сохраняют свои ключи, поэтому порядок не нарушен
+    private int upperBound(int key) {
+        int low = 0;
+        int high = sortedEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int[] sortByKey(int[] positions, int n) {
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) keys[positions[i]] << 32) | positions[i];
+        }
+        Arrays.sort(packed);
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = (int) packed[i];
+        }
+        return sorted;
+    }
+
+    // Вливает хвост в упорядоченную часть за один проход, заодно убирая дырки; индекс строится один раз
+    private void mergeTail() {
+        int[] order = new int[size];
+        int n = 0;
+        Cursor cursor = new Cursor(0, Long.MIN_VALUE);
+        for (int position = cursor.next(); position >= 0; position = cursor.next()) {
+            order[n++] = position;
+        }
+        int[] mergedKeys = new int[keys.length];
+        Object[] mergedValues = new Object[values.length];
+        for (int i = 0; i < n; i++) {
+            mergedKeys[i] = keys[order[i]];
+            mergedValues[i] = values[order[i]];
+        }
+        keys = mergedKeys;
+        values = mergedValues;
+        end = n;
+        sortedEnd = n;
+        rebuildIndex(index.length);
+    }
+
+    private void link(int key, int reference) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = reference;
+    }
+
+    // Удаление со сдвигом назад: следующие записи цепочки переезжают на освободившееся место,
+    // чтобы поиск не обрывался на пустой ячейке и индексу не требовались надгробия
+    private void unlink(int slot) {
+        int mask = index.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (index[next] != 0) {
+            int home = hash(keys[index[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    // Плотные массивы заполнены: если больше половины — дырки, уплотняем на месте, иначе растём вдвое
+    private void ensureDenseCapacity() {
+        if (size <= end / 2) {
+            compact();
+            return;
+        }
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        rebuildIndex(capacity * 2);
+    }
+
+    private void compact() {
+        if (sortedEnd < end) {
+            mergeTail();
+            return;
+        }
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                keys[n] = keys[i];
+                values[n] = values[i];
+                n++;
+            }
+        }
+        Arrays.fill(values, n, end, null);
+        end = n;
+        sortedEnd = n;
+        rebuildIndex(index.length);
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                link(keys[i], i + 1);
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
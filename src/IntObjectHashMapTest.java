@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectHashMapTest {
+
+    @Test
+    void shouldMatchTreeMapUnderRandomOperations() {
+        IntObjectHashMap<String> map = IntObjectHashMap.sortedByKey();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -100; key < 1_900; key++) {
+            assertEquals(expected.get(key), map.get(key), "Ключ " + key);
+        }
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()),
+                "Значения должны обходиться по возрастанию ключа");
+        assertEquals(new ArrayList<>(expected.tailMap(500, false).values()), drain(map.valuesAfter(500)));
+    }
+
+    @Test
+    void shouldInsertDescendingKeysWithoutQuadraticCost() {
+        IntObjectHashMap<Integer> map = IntObjectHashMap.sortedByKey();
+        int count = 200_000;
+        long started = System.nanoTime();
+        for (int key = count; key > 0; key--) {
+            map.put(key, key);
+        }
+        // Перестройка на каждый ключ заняла бы минуты
+        assertTrue(System.nanoTime() - started < 10_000_000_000L,
+                "Вставка по убыванию не должна перестраивать карту на каждый ключ");
+        map.put(Integer.MIN_VALUE, 0);
+
+        assertEquals(count + 1, map.size());
+        int[] keys = map.keys();
+        assertEquals(Integer.MIN_VALUE, keys[0]);
+        for (int i = 1; i < keys.length; i++) {
+            assertEquals(i, keys[i], "Ключи должны обходиться по возрастанию и с неслитым хвостом");
+        }
+        assertEquals(List.of(count - 1, count), drain(map.valuesAfter(count - 2)));
+        assertEquals(Integer.valueOf(1), map.get(1));
+    }
+
+    @Test
+    void shouldKeepInsertionOrderAndReuseSpaceAfterRemovals() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(1_000 - i, i);
+        }
+        for (int i = 0; i < 990; i++) {
+            map.remove(1_000 - i);
+        }
+        map.put(5_000, -1);
+
+        assertArrayEquals(new int[]{10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 5_000}, map.keys());
+        assertThrows(IllegalStateException.class, () -> map.valuesAfter(0));
+    }
+
+    @Test
+    void shouldSerializeEpicSubtaskIdsAsJsonArray() {
+        Epic epic = new Epic(1, "Epic", "Desc");
+        epic.addSubtask(new Subtask(3, "S3", "Desc", TaskStatus.NEW, 1));
+        epic.addSubtask(new Subtask(2, "S2", "Desc", TaskStatus.NEW, 1));
+
+        String json = HttpTaskServer.buildGson(false).toJson(epic);
+        assertTrue(json.contains("\"subtaskIds\":[3,2]"), json);
+        Epic parsed = HttpTaskServer.buildGson(false).fromJson(json, Epic.class);
+        assertArrayEquals(new int[]{3, 2}, parsed.getSubtaskIds());
+    }
+
+    private static <T> List<T> drain(Iterator<T> iterator) {
+        List<T> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Упорядоченное множество long без упаковки: отсортированные блоки до BLOCK_SIZE элементов.
+// Поиск — двоичный по первым элементам блоков и внутри блока, вставка и удаление сдвигают
+// не больше одного блока, поэтому стоят O(log n + BLOCK_SIZE) и не создают объектов на элемент.
+// Long.MIN_VALUE зарезервирован под NONE и храниться не может. Не потокобезопасно.
+public class LongSortedSet {
+
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private long[][] blocks = new long[4][];
+    private int[] sizes = new int[4];
+    private int blockCount;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean add(long value) {
+        if (value == NONE) {
+            throw new IllegalArgumentException("Значение зарезервировано: " + value);
+        }
+        if (blockCount == 0) {
+            insertBlock(0, new long[BLOCK_SIZE], 0);
+        }
+        int block = blockFor(value);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (sizes[block] == BLOCK_SIZE) {
+            split(block);
+            if (position > BLOCK_SIZE / 2) {
+                position -= BLOCK_SIZE / 2;
+                block++;
+            }
+        }
+        long[] values = blocks[block];
+        System.arraycopy(values, position, values, position + 1, sizes[block] - position);
+        values[position] = value;
+        sizes[block]++;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        if (blockCount == 0) {
+            return false;
+        }
+        int block = blockFor(value);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        if (position < 0) {
+            return false;
+        }
+        long[] values = blocks[block];
+        System.arraycopy(values, position + 1, values, position, sizes[block] - position - 1);
+        sizes[block]--;
+        size--;
+        if (sizes[block] == 0) {
+            removeBlock(block);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (blockCount == 0) {
+            return false;
+        }
+        int block = blockFor(value);
+        return Arrays.binarySearch(blocks[block], 0, sizes[block], value) >= 0;
+    }
+
+    // Наибольший элемент меньше value или NONE
+    public long lower(long value) {
+        if (blockCount == 0) {
+            return NONE;
+        }
+        int block = blockFor(value);
+        int position = lowerBound(block, value) - 1;
+        if (position >= 0) {
+            return blocks[block][position];
+        }
+        return block > 0 ? blocks[block - 1][sizes[block - 1] - 1] : NONE;
+    }
+
+    // Элементы не меньше value (или строго больше, если inclusive == false) по возрастанию.
+    // Множество нельзя менять, пока идёт обход
+    public PrimitiveIterator.OfLong from(long value, boolean inclusive) {
+        if (blockCount == 0) {
+            return new BlockIterator(0, 0);
+        }
+        int block = blockFor(value);
+        int position = lowerBound(block, value);
+        if (!inclusive && position < sizes[block] && blocks[block][position] == value) {
+            position++;
+        }
+        return new BlockIterator(block, position);
+    }
+
+    public void clear() {
+        Arrays.fill(blocks, 0, blockCount, null);
+        blockCount = 0;
+        size = 0;
+    }
+
+    // Последний блок, первый элемент которого не больше value; 0, если value меньше всех
+    private int blockFor(long value) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks[mid][0] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Первая позиция в блоке с элементом не меньше value
+    private int lowerBound(int block, long value) {
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void split(int block) {
+        long[] upper = new long[BLOCK_SIZE];
+        int half = BLOCK_SIZE / 2;
+        System.arraycopy(blocks[block], half, upper, 0, BLOCK_SIZE - half);
+        sizes[block] = half;
+        insertBlock(block + 1, upper, BLOCK_SIZE - half);
+    }
+
+    private void insertBlock(int at, long[] values, int count) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            sizes = Arrays.copyOf(sizes, blockCount * 2);
+        }
+        System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+        System.arraycopy(sizes, at, sizes, at + 1, blockCount - at);
+        blocks[at] = values;
+        sizes[at] = count;
+        blockCount++;
+    }
+
+    private void removeBlock(int at) {
+        System.arraycopy(blocks, at + 1, blocks, at, blockCount - at - 1);
+        System.arraycopy(sizes, at + 1, sizes, at, blockCount - at - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+
+    private class BlockIterator implements PrimitiveIterator.OfLong {
+        private int block;
+        private int position;
+
+        BlockIterator(int block, int position) {
+            this.block = block;
+            this.position = position;
+            skipExhausted();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return block < blockCount;
+        }
+
+        @Override
+        public long nextLong() {
+            if (block >= blockCount) {
+                throw new NoSuchElementException();
+            }
+            long value = blocks[block][position++];
+            skipExhausted();
+            return value;
+        }
+
+        private void skipExhausted() {
+            while (block < blockCount && position >= sizes[block]) {
+                block++;
+                position = 0;
+            }
+        }
+    }
+}
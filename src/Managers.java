@@ -3,8 +3,27 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    // Потокобезопасный менеджер для многопоточного HTTP-сервера
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager(getBoundedHistory(BoundedHistoryManager.DEFAULT_CAPACITY)));
+    }
+
+    public static TaskManager getConcurrent(TaskManager delegate) {
+        return new ConcurrentTaskManager(delegate);
+    }
+
+    // Хранилище колонками для очень больших досок; история ограничена, чтобы не копить копии задач
+    public static TaskManager getColumnar() {
+        return new ColumnarTaskManager(getBoundedHistory(BoundedHistoryManager.DEFAULT_CAPACITY));
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    // Ограниченная история, безопасная для параллельных просмотров
+    public static HistoryManager getBoundedHistory(int capacity) {
+        return new BoundedHistoryManager(capacity);
+    }
 }
 
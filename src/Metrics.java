@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+// Реестр метрик процесса: счётчики, измеряемые величины и гистограммы длительностей.
+// Отдаётся в текстовом формате Prometheus (см. MetricsHandler). Метрика определяется именем
+// и набором меток; повторная регистрация с теми же именем и метками возвращает ту же метрику.
+public class Metrics {
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    // labels — пары «имя, значение»
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) series(name, help, Type.HISTOGRAM, labels, Histogram::new);
+    }
+
+    // Значение вычисляется при каждом чтении; повторная регистрация заменяет источник.
+    // Источник держит ссылку на свой объект, поэтому владелец снимает его через Gauge.unregister,
+    // когда останавливается
+    public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        Map<String, Object> series = family(name, help, Type.GAUGE).series();
+        String key = labelsText(labels);
+        series.put(key, value);
+        return new Gauge(series, key, value);
+    }
+
+    // Новый ряд создаётся только при первой регистрации
+    private Object series(String name, String help, Type type, String[] labels, Supplier<Object> fresh) {
+        return family(name, help, type).series().computeIfAbsent(labelsText(labels), key -> fresh.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name,
+                key -> new Family(name, help, type, new ConcurrentSkipListMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована с типом " + family.type());
+        }
+        return family;
+    }
+
+    public void writeTo(Writer out) throws IOException {
+        for (Family family : families.values()) {
+            if (family.series().isEmpty()) {
+                continue;
+            }
+            String type = family.type().name().toLowerCase(Locale.ROOT);
+            out.write("# HELP " + family.name() + " " + family.help() + "\n");
+            out.write("# TYPE " + family.name() + " " + type + "\n");
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                String labels = series.getKey();
+                switch (family.type()) {
+                    case COUNTER -> sample(out, family.name(), labels, ((Counter) series.getValue()).get());
+                    case GAUGE -> sample(out, family.name(), labels, ((DoubleSupplier) series.getValue()).getAsDouble());
+                    case HISTOGRAM -> ((Histogram) series.getValue()).writeTo(out, family.name(), labels);
+                }
+            }
+        }
+    }
+
+    private static void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" " + format(value) + "\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String labelsText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами «имя, значение»");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Регистрация измеряемой величины. Снимает только свой источник: если его уже заменила
+    // повторная регистрация, новая не трогается
+    public static class Gauge {
+        private final Map<String, Object> series;
+        private final String key;
+        private final DoubleSupplier value;
+
+        private Gauge(Map<String, Object> series, String key, DoubleSupplier value) {
+            this.series = series;
+            this.key = key;
+            this.value = value;
+        }
+
+        public void unregister() {
+            series.remove(key, value);
+        }
+    }
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // Логарифмические корзины, как в HdrHistogram, но с шагом в октаву: корзина i — длительности
+    // меньше 2^i мкс (и не меньше 2^(i-1)), последняя — всё, что дольше 2^26 мкс ≈ 67 с.
+    // Запись — два атомарных сложения без блокировок и без выделения памяти
+    public static class Histogram {
+        private static final int BUCKETS = 28;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sumNanos = new LongAdder();
+
+        public void record(long nanos) {
+            long micros = Math.max(0, nanos) / 1000;
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            sumNanos.add(Math.max(0, nanos));
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        // Корзины накопительные; _count берётся из них же, чтобы совпадать с le="+Inf"
+        private void writeTo(Writer out, String name, String labels) throws IOException {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += buckets.get(i);
+                String le = i == BUCKETS - 1 ? "+Inf" : format((1L << i) / 1e6);
+                sample(out, name + "_bucket", prefix + "le=\"" + le + "\"", cumulative);
+            }
+            sample(out, name + "_sum", labels, sumNanos.sum() / 1e9);
+            sample(out, name + "_count", labels, cumulative);
+        }
+    }
+}
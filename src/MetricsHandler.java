@@ -0,0 +1,42 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// GET /metrics — метрики в текстовом формате Prometheus
+public class MetricsHandler extends BaseHttpHandler implements HttpHandler {
+    private final Metrics metrics;
+
+    public MetricsHandler(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange h) throws IOException {
+        try {
+            if (!h.getRequestMethod().equals("GET")) {
+                sendText(h, "{\"error\":\"Invalid method\"}", 405);
+                return;
+            }
+            String path = h.getRequestURI().getPath();
+            if (!path.equals("/metrics") && !path.equals("/metrics/")) {
+                sendNotFound(h);
+                return;
+            }
+            h.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            h.sendResponseHeaders(200, 0);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8))) {
+                metrics.writeTo(writer);
+            } finally {
+                h.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendInternalError(h);
+        }
+    }
+}
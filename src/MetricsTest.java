@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void shouldWriteCumulativeHistogramBuckets() throws IOException {
+        Metrics metrics = new Metrics();
+        Metrics.Histogram histogram = metrics.histogram("op_duration_seconds", "Время операции", "op", "save");
+        histogram.record(500);
+        histogram.record(3_000);
+        histogram.record(3_500);
+        histogram.record(120_000_000_000L);
+
+        String text = scrape(metrics);
+        assertTrue(text.contains("# TYPE op_duration_seconds histogram"), text);
+        assertTrue(text.contains("op_duration_seconds_bucket{op=\"save\",le=\"1.0E-6\"} 1\n"), text);
+        assertTrue(text.contains("op_duration_seconds_bucket{op=\"save\",le=\"2.0E-6\"} 1\n"), text);
+        assertTrue(text.contains("op_duration_seconds_bucket{op=\"save\",le=\"4.0E-6\"} 3\n"), text);
+        assertTrue(text.contains("op_duration_seconds_bucket{op=\"save\",le=\"+Inf\"} 4\n"), text);
+        assertTrue(text.contains("op_duration_seconds_count{op=\"save\"} 4\n"), text);
+        assertEquals(4, histogram.count());
+    }
+
+    @Test
+    void shouldReuseSeriesAndRejectTypeConflicts() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.counter("requests_total", "Запросы", "path", "/a\"b").increment();
+        metrics.counter("requests_total", "Запросы", "path", "/a\"b").add(2);
+        metrics.gauge("queue_size", "Очередь", () -> 7);
+        assertSame(metrics.histogram("op_duration_seconds", "Время операции", "op", "load"),
+                metrics.histogram("op_duration_seconds", "Время операции", "op", "load"));
+
+        String text = scrape(metrics);
+        assertTrue(text.contains("requests_total{path=\"/a\\\"b\"} 3\n"), text);
+        assertTrue(text.contains("queue_size 7\n"), text);
+        assertThrows(IllegalArgumentException.class, () -> metrics.histogram("requests_total", "Запросы"));
+    }
+
+    @Test
+    void shouldUnregisterOnlyOwnGaugeSource() throws IOException {
+        Metrics metrics = new Metrics();
+        Metrics.Gauge first = metrics.gauge("boards_loaded", "Доски", () -> 1);
+        Metrics.Gauge second = metrics.gauge("boards_loaded", "Доски", () -> 2);
+
+        first.unregister();
+        assertTrue(scrape(metrics).contains("boards_loaded 2\n"), "Заменённый источник не должен снимать новый");
+        second.unregister();
+        assertFalse(scrape(metrics).contains("boards_loaded"), scrape(metrics));
+    }
+
+    private static String scrape(Metrics metrics) throws IOException {
+        StringWriter out = new StringWriter();
+        metrics.writeTo(out);
+        return out.toString();
+    }
+}
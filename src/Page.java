@@ -0,0 +1,9 @@
+import java.util.List;
+
+// Страница списка. nextCursor — непрозрачная строка для запроса следующей страницы, null на последней
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,80 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Курсоры постраничного чтения. Курсор хранит ключ последнего отданного элемента, а не номер
+// страницы, поэтому вставки и удаления между запросами не сдвигают уже пройденную часть списка.
+// Снаружи курсор непрозрачен: base64url от "id:<id>" или "at:<начало>|<id>".
+public final class PageCursor {
+
+    private static final String BY_ID = "id:";
+    private static final String BY_START = "at:";
+
+    private PageCursor() {
+    }
+
+    public static String ofId(int id) {
+        return encode(BY_ID + id);
+    }
+
+    // 0 — с начала списка: id задач начинаются с 1
+    public static int decodeId(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        String value = decode(cursor);
+        if (!value.startsWith(BY_ID)) {
+            throw invalid(cursor);
+        }
+        try {
+            return Integer.parseInt(value.substring(BY_ID.length()));
+        } catch (NumberFormatException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    public static String ofInterval(TimeIntervalIndex.Interval interval) {
+        return encode(BY_START + interval.start() + "|" + interval.id());
+    }
+
+    // Возвращает интервал-ключ с нужными началом и id; null — с начала расписания
+    public static TimeIntervalIndex.Interval decodeInterval(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String value = decode(cursor);
+        int separator = value.lastIndexOf('|');
+        if (!value.startsWith(BY_START) || separator < 0) {
+            throw invalid(cursor);
+        }
+        try {
+            LocalDateTime start = LocalDateTime.parse(value.substring(BY_START.length(), separator));
+            int id = Integer.parseInt(value.substring(separator + 1));
+            return new TimeIntervalIndex.Interval(id, start, start, null);
+        } catch (RuntimeException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    private static IllegalArgumentException invalid(String cursor) {
+        return new IllegalArgumentException("Некорректный курсор: " + cursor);
+    }
+}
@@ -0,0 +1,6 @@
+public enum PersistenceMode {
+    // Полная перезапись CSV при каждом изменении
+    SNAPSHOT,
+    // Дозапись одной записи в журнал на изменение, CSV служит контрольной точкой
+    JOURNAL
+}
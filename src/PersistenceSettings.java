@@ -0,0 +1,118 @@
+import java.time.Duration;
+
+// Настройки хранения FileBackedTaskManager. Экземпляры неизменяемые: with* возвращают копию.
+public class PersistenceSettings {
+
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    public static final Duration DEFAULT_GROUP_COMMIT_WINDOW = Duration.ofMillis(5);
+    public static final int DEFAULT_CHECKPOINT_RETENTION = 5;
+
+    private final PersistenceMode mode;
+    private final int compactionThreshold;
+    private final DurabilityMode durability;
+    private final Duration groupCommitWindow;
+    private final SnapshotFormat format;
+    private final boolean compressed;
+    private final Duration checkpointInterval;
+    private final int checkpointRetention;
+
+    private PersistenceSettings(PersistenceMode mode, int compactionThreshold,
+                                DurabilityMode durability, Duration groupCommitWindow, SnapshotFormat format,
+                                boolean compressed, Duration checkpointInterval, int checkpointRetention) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Порог компакции журнала должен быть положительным: " + compactionThreshold);
+        }
+        if (groupCommitWindow.isNegative()) {
+            throw new IllegalArgumentException("Окно группового коммита не может быть отрицательным: " + groupCommitWindow);
+        }
+        if (checkpointInterval.isNegative()) {
+            throw new IllegalArgumentException("Интервал контрольных точек не может быть отрицательным: " + checkpointInterval);
+        }
+        if (checkpointRetention <= 0) {
+            throw new IllegalArgumentException("Число хранимых контрольных точек должно быть положительным: " + checkpointRetention);
+        }
+        this.mode = mode;
+        this.compactionThreshold = compactionThreshold;
+        this.durability = durability;
+        this.groupCommitWindow = groupCommitWindow;
+        this.format = format;
+        this.compressed = compressed;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointRetention = checkpointRetention;
+    }
+
+    public static PersistenceSettings defaults() {
+        return new PersistenceSettings(PersistenceMode.SNAPSHOT, DEFAULT_COMPACTION_THRESHOLD,
+                DurabilityMode.SYNC, DEFAULT_GROUP_COMMIT_WINDOW, SnapshotFormat.CSV,
+                false, Duration.ZERO, DEFAULT_CHECKPOINT_RETENTION);
+    }
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public DurabilityMode getDurability() {
+        return durability;
+    }
+
+    public Duration getGroupCommitWindow() {
+        return groupCommitWindow;
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    // Основной файл пишется сжатым gzip
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // Как часто при изменениях пишется сжатая контрольная точка; Duration.ZERO — только по checkpoint()
+    public Duration getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public int getCheckpointRetention() {
+        return checkpointRetention;
+    }
+
+    public PersistenceSettings withMode(PersistenceMode mode) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withCompactionThreshold(int compactionThreshold) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withDurability(DurabilityMode durability) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withGroupCommitWindow(Duration groupCommitWindow) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withFormat(SnapshotFormat format) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withCompression(boolean compressed) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, checkpointInterval, checkpointRetention);
+    }
+
+    public PersistenceSettings withCheckpoints(Duration interval, int retention) {
+        return new PersistenceSettings(mode, compactionThreshold, durability, groupCommitWindow, format,
+                compressed, interval, retention);
+    }
+}
@@ -3,6 +3,13 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager manager;
@@ -20,11 +27,71 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
                 sendText(h, "{\"error\":\"Invalid method\"}", 405);
                 return;
             }
-            sendText(h, gson.toJson(manager.getPrioritizedTasks()), 200);
+            Map<String, String> query = queryParams(h);
+            String path = h.getRequestURI().getPath();
+            if (path.equals("/prioritized/free-slot")) {
+                handleFreeSlot(h, query);
+                return;
+            }
+            if (!path.equals("/prioritized") && !path.equals("/prioritized/")) {
+                sendNotFound(h);
+                return;
+            }
+            if (query.containsKey("from") || query.containsKey("to")) {
+                handleRange(h, query);
+                return;
+            }
+            if (!sendPageIfRequested(h, gson, manager::getPrioritizedTasks)) {
+                sendJson(h, gson, manager.getPrioritizedTasks(), 200);
+            }
         } catch (Exception e) {
             e.printStackTrace();
             sendInternalError(h);
         }
     }
-}
 
+    // ?from=&to= — задачи, пересекающие окно [from, to); ?from= без to — ближайшие limit задач начиная с from
+    private void handleRange(HttpExchange h, Map<String, String> query) throws IOException {
+        try {
+            if (!query.containsKey("from")) {
+                throw new IllegalArgumentException("Параметр to требует from");
+            }
+            LocalDateTime from = LocalDateTime.parse(query.get("from"));
+            if (query.containsKey("to")) {
+                LocalDateTime to = LocalDateTime.parse(query.get("to"));
+                int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : Integer.MAX_VALUE;
+                sendJson(h, gson, manager.getTasksBetween(from, to, limit), 200);
+            } else {
+                int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_PAGE_LIMIT;
+                sendJson(h, gson, manager.getTasksStartingFrom(from, limit), 200);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendText(h, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))), 400);
+        }
+    }
+
+    // ?duration=<минуты>&after=&workStart=&workEnd= — ближайший свободный интервал; after по умолчанию — сейчас
+    private void handleFreeSlot(HttpExchange h, Map<String, String> query) throws IOException {
+        try {
+            if (!query.containsKey("duration")) {
+                throw new IllegalArgumentException("Не указан параметр duration");
+            }
+            Duration duration = Duration.ofMinutes(Long.parseLong(query.get("duration")));
+            LocalDateTime after = query.containsKey("after")
+                    ? LocalDateTime.parse(query.get("after"))
+                    : LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            WorkingHours hours = null;
+            if (query.containsKey("workStart") || query.containsKey("workEnd")) {
+                hours = new WorkingHours(LocalTime.parse(query.getOrDefault("workStart", "")),
+                        LocalTime.parse(query.getOrDefault("workEnd", "")));
+            }
+            LocalDateTime start = manager.findFreeSlot(after, duration, hours);
+            Map<String, LocalDateTime> slot = new LinkedHashMap<>();
+            slot.put("start", start);
+            slot.put("end", start.plus(duration));
+            sendJson(h, gson, slot, 200);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendText(h, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))), 400);
+        }
+    }
+}
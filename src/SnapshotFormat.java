@@ -0,0 +1,6 @@
+public enum SnapshotFormat {
+    // Текстовый CSV: id,type,name,status,description,epic,duration,startTime
+    CSV,
+    // Компактный двоичный формат BinarySnapshot, загружается через отображение файла в память
+    BINARY
+}
@@ -0,0 +1,49 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Строки в UTF-8 вне кучи, в прямых буферах по CHUNK_SIZE байт: сборщик мусора не видит
+// ни байтов, ни объектов строк. Ссылка на строку — (номер куска << 32) | смещение, длину хранит
+// владелец. Место не освобождается по одной строке: free только учитывает мусор, а владелец
+// переписывает живые строки в новую арену, когда мусора становится больше, чем живых данных.
+// Не потокобезопасно.
+public class StringArena {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long liveBytes;
+    private long garbageBytes;
+
+    public long put(byte[] utf8) {
+        if (current == null || current.remaining() < utf8.length) {
+            current = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, utf8.length));
+            chunks.add(current);
+        }
+        long ref = ((long) (chunks.size() - 1) << 32) | current.position();
+        current.put(utf8);
+        liveBytes += utf8.length;
+        return ref;
+    }
+
+    public String get(long ref, int length) {
+        return new String(bytes(ref, length), StandardCharsets.UTF_8);
+    }
+
+    public byte[] bytes(long ref, int length) {
+        byte[] utf8 = new byte[length];
+        chunks.get((int) (ref >>> 32)).get((int) ref, utf8);
+        return utf8;
+    }
+
+    public void free(int length) {
+        liveBytes -= length;
+        garbageBytes += length;
+    }
+
+    public boolean needsCompaction() {
+        return garbageBytes > CHUNK_SIZE && garbageBytes > liveBytes;
+    }
+}
@@ -3,6 +3,9 @@ import java.time.LocalDateTime;
 
 public class Subtask extends Task {
     private int epicId;
+    // Эпик, в списке которого подзадача сейчас записана; ведёт менеджер, 0 — нигде. Отличается от
+    // epicId, если подзадачу перенесли, изменив на месте, а updateSubtask ещё не вызван
+    private transient int listedEpicId;
 
     public Subtask(int id, String name, String description, TaskStatus status,
                    int epicId, Duration duration, LocalDateTime startTime) {
@@ -14,11 +17,25 @@ public class Subtask extends Task {
         this(id, name, description, status, epicId, Duration.ZERO, null);
     }
 
+    public Subtask(Subtask other) {
+        super(other);
+        this.epicId = other.epicId;
+    }
+
     public int getEpicId() {
         return epicId;
     }
 
+    int getListedEpicId() {
+        return listedEpicId;
+    }
+
+    void setListedEpicId(int listedEpicId) {
+        this.listedEpicId = listedEpicId;
+    }
+
     public void setEpicId(int epicId) {
+        checkMutable();
         if (epicId == this.getId()) {
             return;
         }
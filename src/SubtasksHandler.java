@@ -28,7 +28,11 @@ public class SubtasksHandler extends BaseHttpHandler implements HttpHandler {
                     handleGet(h, path);
                     break;
                 case "POST":
-                    handlePost(h);
+                    if (path.equals("/subtasks/batch")) {
+                        importNdjson(h, gson, manager, Subtask.class, TaskManager::createSubtask);
+                    } else {
+                        handlePost(h);
+                    }
                     break;
                 case "DELETE":
                     handleDelete(h, path);
@@ -47,15 +51,26 @@ public class SubtasksHandler extends BaseHttpHandler implements HttpHandler {
 
         try {
             if (parts.length == 2) {
+                if (sendNotModifiedIfMatches(h, "subtasks", manager.getVersion(TaskType.SUBTASK))) {
+                    return;
+                }
+                if (sendPageIfRequested(h, gson, manager::getSubtasks)) {
+                    return;
+                }
                 List<Subtask> subs = manager.getSubtasks();
-                sendText(h, gson.toJson(subs), 200);
+                sendJson(h, gson, subs, 200);
 
             } else if (parts.length == 3) {
                 int id = Integer.parseInt(parts[2]);
+                long version = manager.getVersion(TaskType.SUBTASK, id);
+                // Просмотр попадает в историю и тогда, когда клиенту хватит 304
                 Optional<Subtask> subOpt = manager.getSubtask(id);
 
                 if (subOpt.isPresent()) {
-                    sendText(h, gson.toJson(subOpt.get()), 200);
+                    if (sendNotModifiedIfMatches(h, "subtask-" + id, version)) {
+                        return;
+                    }
+                    sendJson(h, gson, subOpt.get(), 200);
                 } else {
                     sendNotFound(h);
                 }
@@ -9,6 +9,10 @@ public class Task {
     private TaskStatus status;
     private Duration duration;
     private LocalDateTime startTime;
+    // Версия последнего изменения в менеджере; transient — не попадает в JSON
+    private transient long version;
+    // Копии из BoardSnapshot общие для всех читателей, поэтому менять их нельзя
+    private transient boolean frozen;
 
     public Task(int id, String title, String description, TaskStatus status, Duration duration, LocalDateTime startTime) {
         this.id = id;
@@ -27,7 +31,10 @@ public class Task {
         this.id = other.id;
         this.title = other.title;
         this.description = other.description;
-        this.status = other.status;
+        this.status = other.getStatus();
+        this.duration = other.getDuration();
+        this.startTime = other.getStartTime();
+        this.version = other.version;
     }
 
     public int getId() {
@@ -35,6 +42,7 @@ public class Task {
     }
 
     public void setId(int id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -43,6 +51,7 @@ public class Task {
     }
 
     public void setTitle(String title) {
+        checkMutable();
         this.title = title;
     }
 
@@ -51,6 +60,7 @@ public class Task {
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
@@ -59,6 +69,7 @@ public class Task {
     }
 
     public void setStatus(TaskStatus status) {
+        checkMutable();
         this.status = status;
     }
 
@@ -67,6 +78,7 @@ public class Task {
     }
 
     public void setDuration(Duration duration) {
+        checkMutable();
         this.duration = duration;
     }
 
@@ -75,9 +87,33 @@ public class Task {
     }
 
     public void setStartTime(LocalDateTime startTime) {
+        checkMutable();
         this.startTime = startTime;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    protected void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Задача из снимка доступна только для чтения: id=" + id);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -104,9 +140,9 @@ public class Task {
         return "Task{" +
                 "id=" + id +
                 ", title='" + title + '\'' +
-                ", status=" + status +
-                ", duration=" + (duration != null ? duration.toMinutes() + " min" : "null") +
-                ", startTime=" + startTime +
+                ", status=" + getStatus() +
+                ", duration=" + (getDuration() != null ? getDuration().toMinutes() + " min" : "null") +
+                ", startTime=" + getStartTime() +
                 ", endTime=" + getEndTime() +
                 '}';
     }
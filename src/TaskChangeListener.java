@@ -0,0 +1,7 @@
+// Слушатель изменений доски. Вызывается в потоке, который менял доску, сразу после изменения
+// и под блокировкой менеджера, если она есть, поэтому не должен блокироваться
+@FunctionalInterface
+public interface TaskChangeListener {
+
+    void onChange(TaskEvent event);
+}
@@ -0,0 +1,11 @@
+// Уведомление об изменении доски: задачу id типа type создали, изменили или удалили.
+// CLEARED — удалены все задачи типа, id = 0. version — версия доски сразу после изменения (см. getVersion)
+public record TaskEvent(Action action, TaskType type, int id, long version) {
+
+    public enum Action {
+        CREATED,
+        UPDATED,
+        DELETED,
+        CLEARED
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Журнал изменений менеджера: одна строка на мутацию, только дозапись в конец файла
+public class TaskJournal implements Closeable {
+
+    private final File file;
+    private FileOutputStream out;
+    private Writer writer;
+    private int records;
+
+    public TaskJournal(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int size() {
+        return records;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    public void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    // Пишет пачку записей одним вызовом и сбрасывает её на диск
+    public synchronized void appendAll(List<String> batch) {
+        try {
+            if (writer == null) {
+                out = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            }
+            for (String record : batch) {
+                writer.write(record);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+            records += batch.size();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public void replay(Consumer<String> consumer) {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    consumer.accept(line);
+                    records++;
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала " + file.getAbsolutePath(), e);
+        }
+    }
+
+    // Вызывается после записи контрольной точки: всё содержимое журнала уже в ней
+    public synchronized void truncate() {
+        close();
+        // Обрезка сбрасывается на диск: иначе после сбоя старые записи могли бы проиграться поверх точки
+        try (FileOutputStream truncated = new FileOutputStream(file, false)) {
+            truncated.getFD().sync();
+            records = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала " + file.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала " + file.getAbsolutePath(), e);
+        } finally {
+            writer = null;
+            out = null;
+        }
+    }
+}
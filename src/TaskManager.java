@@ -1,14 +1,42 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TaskManager {
-    ArrayList<Task> getTasks();
+    // Неизменяемые списки на момент вызова; задачи в них только для чтения
+    List<Task> getTasks();
 
-    ArrayList<Task> getPrioritizedTasks();
+    List<Task> getPrioritizedTasks();
 
-    ArrayList<Epic> getEpics();
+    List<Epic> getEpics();
 
-    ArrayList<Subtask> getSubtasks();
+    List<Subtask> getSubtasks();
+
+    // Постраничные варианты: не больше limit элементов после cursor (null — с начала)
+    Page<Task> getTasks(int limit, String cursor);
+
+    Page<Task> getPrioritizedTasks(int limit, String cursor);
+
+    Page<Epic> getEpics(int limit, String cursor);
+
+    Page<Subtask> getSubtasks(int limit, String cursor);
+
+    // Задачи, пересекающие окно [from, to), в порядке начала — не больше limit
+    ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to, int limit);
+
+    // Ближайшие limit задач, начинающихся не раньше time
+    ArrayList<Task> getTasksStartingFrom(LocalDateTime time, int limit);
+
+    // Самое раннее начало не раньше after, куда задача длительности duration встанет без пересечений
+    default LocalDateTime findFreeSlot(LocalDateTime after, Duration duration) {
+        return findFreeSlot(after, duration, null);
+    }
+
+    // hours == null — время суток не ограничено
+    LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, WorkingHours hours);
 
     Optional<Task> getTask(int id);
 
@@ -43,4 +71,21 @@ public interface TaskManager {
     ArrayList<Subtask> getEpicSubtasks(int epicId);
 
     ArrayList<Task> getHistory();
+
+    // Версии монотонно растут с каждым изменением коллекции или задачи (для эпика — и его подзадач);
+    // 0 — коллекция ещё не менялась или задачи нет. Просмотры версии не меняют
+    long getVersion(TaskType type);
+
+    long getVersion(TaskType type, int id);
+
+    // Уведомления о каждом изменении доски, см. TaskChangeListener
+    void addChangeListener(TaskChangeListener listener);
+
+    void removeChangeListener(TaskChangeListener listener);
+
+    // Выполняет work как одну пачку изменений: менеджеры с хранилищем сохраняют результат один раз в конце.
+    // Изменения нужно вносить через менеджер, переданный в work
+    default void inBatch(Consumer<TaskManager> work) {
+        work.accept(this);
+    }
 }
@@ -102,6 +102,120 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(TaskStatus.IN_PROGRESS, manager.getEpic(epic.getId()).orElseThrow().getStatus());
     }
 
+    @Test
+    void shouldUpdateEpicTimeOnSubtaskChanges() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        Subtask s1 = new Subtask(0, "S1", "Desc", TaskStatus.NEW, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        Subtask s2 = new Subtask(0, "S2", "Desc", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 10, 28, 12, 0));
+        manager.createSubtask(s1);
+        manager.createSubtask(s2);
+
+        Epic saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 10, 0), saved.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 13, 0), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(90), saved.getDuration());
+        assertEquals(TaskStatus.IN_PROGRESS, saved.getStatus());
+
+        // Статус и время эпика пересчитываются при чтении через менеджер
+        s1.setStartTime(LocalDateTime.of(2025, 10, 28, 14, 0));
+        s1.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(s1);
+        saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 12, 0), saved.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 14, 30), saved.getEndTime());
+        assertEquals(TaskStatus.DONE, saved.getStatus());
+
+        manager.deleteSubtaskById(s2.getId());
+        saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(LocalDateTime.of(2025, 10, 28, 14, 0), saved.getStartTime());
+        assertEquals(Duration.ofMinutes(30), saved.getDuration());
+
+        manager.deleteSubtaskById(s1.getId());
+        saved = manager.getEpic(epic.getId()).orElseThrow();
+        assertNull(saved.getStartTime());
+        assertNull(saved.getEndTime());
+        assertEquals(TaskStatus.NEW, saved.getStatus());
+    }
+
+    @Test
+    void shouldReturnEpicSubtasksInInsertionOrderAndCascadeDelete() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        Epic other = new Epic(0, "Other", "Desc");
+        manager.createEpic(epic);
+        manager.createEpic(other);
+        Subtask s1 = new Subtask(0, "S1", "Desc", TaskStatus.NEW, epic.getId());
+        Subtask foreign = new Subtask(0, "F", "Desc", TaskStatus.NEW, other.getId());
+        Subtask s2 = new Subtask(0, "S2", "Desc", TaskStatus.NEW, epic.getId());
+        manager.createSubtask(s1);
+        manager.createSubtask(foreign);
+        manager.createSubtask(s2);
+
+        assertEquals(List.of(s1, s2), manager.getEpicSubtasks(epic.getId()));
+
+        manager.deleteEpicById(epic.getId());
+        assertTrue(manager.getEpicSubtasks(epic.getId()).isEmpty());
+        assertEquals(List.of(foreign), manager.getSubtasks());
+    }
+
+    @Test
+    void shouldMoveSubtaskAndItsRollupToAnotherEpic() {
+        Epic from = new Epic(0, "From", "Desc");
+        Epic to = new Epic(0, "To", "Desc");
+        manager.createEpic(from);
+        manager.createEpic(to);
+        Subtask moving = new Subtask(0, "Moving", "Desc", TaskStatus.DONE, from.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        Subtask staying = new Subtask(0, "Staying", "Desc", TaskStatus.NEW, from.getId());
+        manager.createSubtask(moving);
+        manager.createSubtask(staying);
+
+        manager.updateSubtask(new Subtask(moving.getId(), "Moving", "Desc", TaskStatus.DONE, to.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0)));
+
+        assertEquals(List.of(staying.getId()), manager.getEpicSubtasks(from.getId()).stream().map(Task::getId).toList());
+        assertEquals(List.of(moving.getId()), manager.getEpicSubtasks(to.getId()).stream().map(Task::getId).toList());
+        Epic source = manager.getEpic(from.getId()).orElseThrow();
+        assertEquals(TaskStatus.NEW, source.getStatus(), "Старый эпик не должен учитывать перенесённую подзадачу");
+        assertNull(source.getStartTime());
+        assertArrayEquals(new int[]{staying.getId()}, source.getSubtaskIds());
+        Epic target = manager.getEpic(to.getId()).orElseThrow();
+        assertEquals(TaskStatus.DONE, target.getStatus());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 10, 30), target.getEndTime());
+
+        // Та же подзадача, изменённая на месте: её epicId уже новый, но числится она ещё в старом эпике
+        Subtask stored = manager.getEpicSubtasks(to.getId()).get(0);
+        stored.setEpicId(from.getId());
+        manager.updateSubtask(stored);
+        assertTrue(manager.getEpicSubtasks(to.getId()).isEmpty());
+        assertEquals(TaskStatus.NEW, manager.getEpic(to.getId()).orElseThrow().getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpic(from.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void shouldReportSameEpicChildrenThroughEveryRead() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        Subtask first = new Subtask(0, "First", "Desc", TaskStatus.NEW, epic.getId());
+        Subtask second = new Subtask(0, "Second", "Desc", TaskStatus.NEW, epic.getId());
+        Subtask third = new Subtask(0, "Third", "Desc", TaskStatus.NEW, epic.getId());
+        manager.createSubtask(first);
+        manager.createSubtask(second);
+        manager.createSubtask(third);
+        manager.deleteSubtaskById(second.getId());
+
+        int[] expected = {first.getId(), third.getId()};
+        assertArrayEquals(expected, manager.getEpicSubtasks(epic.getId()).stream().mapToInt(Task::getId).toArray());
+        assertArrayEquals(expected, manager.getEpic(epic.getId()).orElseThrow().getSubtaskIds());
+        assertArrayEquals(expected, manager.getEpics().get(0).getSubtaskIds());
+        assertArrayEquals(expected, manager.getEpics(10, null).items().get(0).getSubtaskIds());
+
+        manager.deleteSubtasks();
+        assertEquals(0, manager.getEpic(epic.getId()).orElseThrow().getSubtaskIds().length);
+    }
+
     // Проверка пересечения интервалов
 
     @Test
@@ -117,6 +231,220 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Ожидалось исключение при пересечении задач по времени");
     }
 
+    @Test
+    void shouldAllowTaskStartingWhenPreviousEnds() {
+        manager.createTask(new Task(0, "T1", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0)));
+
+        assertDoesNotThrow(() -> manager.createTask(new Task(0, "T2", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 30))));
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldRescheduleTaskOnUpdateAndFreeSlotOnDelete() {
+        Task t1 = new Task(0, "T1", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        manager.createTask(t1);
+
+        t1.setStartTime(LocalDateTime.of(2025, 10, 28, 12, 0));
+        assertDoesNotThrow(() -> manager.updateTask(t1), "Задача не должна пересекаться сама с собой");
+
+        Task t2 = new Task(0, "T2", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10, 0));
+        assertDoesNotThrow(() -> manager.createTask(t2), "Старый интервал должен освободиться после обновления");
+
+        Task t3 = new Task(0, "T3", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 12, 15));
+        assertThrows(IllegalArgumentException.class, () -> manager.createTask(t3));
+
+        manager.deleteTaskById(t1.getId());
+        assertDoesNotThrow(() -> manager.createTask(t3));
+        assertEquals(List.of(t2, t3), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldPageThroughTasksByCursorWithoutSkipsUnderInserts() {
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW));
+        }
+
+        Page<Task> first = manager.getTasks(2, null);
+        assertEquals(2, first.items().size());
+        assertTrue(first.hasNext());
+
+        manager.createTask(new Task(0, "Late", "Desc", TaskStatus.NEW));
+
+        List<Task> seen = new ArrayList<>(first.items());
+        Page<Task> page = first;
+        while (page.hasNext()) {
+            page = manager.getTasks(2, page.nextCursor());
+            seen.addAll(page.items());
+        }
+        assertEquals(manager.getTasks(), seen, "Страницы должны покрыть все задачи ровно один раз");
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks(2, "not-a-cursor"));
+    }
+
+    @Test
+    void shouldPagePrioritizedTasksInTimeOrder() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 4; i >= 0; i--) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW,
+                    Duration.ofMinutes(30), base.plusHours(i)));
+        }
+
+        List<Task> seen = new ArrayList<>();
+        Page<Task> page = manager.getPrioritizedTasks(3, null);
+        seen.addAll(page.items());
+        while (page.hasNext()) {
+            page = manager.getPrioritizedTasks(3, page.nextCursor());
+            seen.addAll(page.items());
+        }
+        assertEquals(manager.getPrioritizedTasks(), seen);
+        assertEquals(base, seen.get(0).getStartTime());
+    }
+
+    @Test
+    void shouldQueryScheduleByTimeWindow() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Task early = new Task(0, "Early", "Desc", TaskStatus.NEW, Duration.ofMinutes(90), base);
+        Task middle = new Task(0, "Middle", "Desc", TaskStatus.NEW, Duration.ofMinutes(30), base.plusHours(2));
+        Task late = new Task(0, "Late", "Desc", TaskStatus.NEW, Duration.ofMinutes(30), base.plusHours(4));
+        manager.createTask(late);
+        manager.createTask(early);
+        manager.createTask(middle);
+        manager.createTask(new Task(0, "Untimed", "Desc", TaskStatus.NEW));
+
+        // Окно начинается посреди early и заканчивается ровно в начале late
+        assertEquals(List.of(early, middle), manager.getTasksBetween(base.plusHours(1), base.plusHours(4), 10));
+        assertEquals(List.of(early), manager.getTasksBetween(base.plusHours(1), base.plusHours(4), 1));
+        assertTrue(manager.getTasksBetween(base.plusMinutes(90), base.plusHours(2), 10).isEmpty());
+        assertEquals(List.of(middle, late), manager.getTasksStartingFrom(base.plusMinutes(1), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.getTasksBetween(base.plusHours(2), base.plusHours(1), 10));
+    }
+
+    @Test
+    void shouldNotLeakZeroLengthTasksBeforeWindowWhenLongTaskOverlapsIt() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Task previous = new Task(0, "Previous", "Desc", TaskStatus.NEW, Duration.ofMinutes(120), base);
+        Task zero = new Task(0, "Zero", "Desc", TaskStatus.NEW, Duration.ZERO, base.plusMinutes(30));
+        manager.createTask(previous);
+        manager.createTask(zero);
+
+        assertEquals(List.of(previous), manager.getTasksBetween(base.plusHours(1), base.plusHours(3), 10));
+        assertEquals(List.of(previous, zero), manager.getTasksBetween(base.plusMinutes(30), base.plusHours(3), 10));
+    }
+
+    @Test
+    void shouldFindEarliestFreeSlot() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 6, 9, 0);
+        manager.createTask(new Task(0, "A", "Desc", TaskStatus.NEW, Duration.ofMinutes(60), base));
+        manager.createTask(new Task(0, "B", "Desc", TaskStatus.NEW, Duration.ofMinutes(60), base.plusMinutes(90)));
+        manager.createTask(new Task(0, "C", "Desc", TaskStatus.NEW, Duration.ofMinutes(60), base.plusHours(3)));
+
+        assertEquals(base.plusMinutes(60), manager.findFreeSlot(base.plusMinutes(30), Duration.ofMinutes(30)));
+        assertEquals(base.plusMinutes(240), manager.findFreeSlot(base, Duration.ofMinutes(45)));
+        assertEquals(base.minusHours(1), manager.findFreeSlot(base.minusHours(1), Duration.ofMinutes(60)));
+
+        WorkingHours hours = new WorkingHours(LocalTime.of(9, 0), LocalTime.of(13, 0));
+        assertEquals(base.plusDays(1), manager.findFreeSlot(base, Duration.ofMinutes(90), hours),
+                "Не поместившийся в рабочий день отрезок переносится на следующее утро");
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.findFreeSlot(base, Duration.ofHours(5), hours));
+
+        LocalDateTime slot = manager.findFreeSlot(base, Duration.ofMinutes(30));
+        assertDoesNotThrow(() -> manager.createTask(
+                new Task(0, "Fits", "Desc", TaskStatus.NEW, Duration.ofMinutes(30), slot)));
+    }
+
+    @Test
+    void shouldAdvanceVersionsOnChangesButNotOnViews() {
+        Task task = new Task(0, "Task", "Desc", TaskStatus.NEW);
+        manager.createTask(task);
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        long tasksVersion = manager.getVersion(TaskType.TASK);
+        long epicVersion = manager.getVersion(TaskType.EPIC, epic.getId());
+        assertTrue(tasksVersion > 0);
+
+        manager.getTask(task.getId());
+        manager.getTasks();
+        assertEquals(tasksVersion, manager.getVersion(TaskType.TASK), "Чтение не должно менять версию");
+
+        manager.createSubtask(new Subtask(0, "Sub", "Desc", TaskStatus.DONE, epic.getId()));
+        assertTrue(manager.getVersion(TaskType.EPIC, epic.getId()) > epicVersion,
+                "Изменение подзадачи меняет статус эпика, а значит и его версию");
+        assertEquals(tasksVersion, manager.getVersion(TaskType.TASK));
+
+        manager.deleteTaskById(task.getId());
+        assertTrue(manager.getVersion(TaskType.TASK) > tasksVersion);
+        assertEquals(0, manager.getVersion(TaskType.TASK, task.getId()));
+    }
+
+    @Test
+    void shouldReturnReadOnlyPointInTimeLists() {
+        Task task = new Task(0, "Task", "Desc", TaskStatus.NEW);
+        manager.createTask(task);
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+
+        List<Task> before = manager.getTasks();
+        List<Epic> epicsBefore = manager.getEpics();
+        assertThrows(UnsupportedOperationException.class, () -> before.add(task));
+        assertThrows(UnsupportedOperationException.class, () -> before.get(0).setTitle("Changed"));
+        assertSame(before, manager.getTasks(), "Без изменений повторное чтение не должно копировать");
+
+        manager.createTask(new Task(0, "Second", "Desc", TaskStatus.NEW));
+        manager.createSubtask(new Subtask(0, "Sub", "Desc", TaskStatus.DONE, epic.getId()));
+
+        assertEquals(1, before.size(), "Полученный ранее список не должен меняться");
+        assertEquals(TaskStatus.NEW, epicsBefore.get(0).getStatus());
+        List<Task> after = manager.getTasks();
+        assertEquals(2, after.size());
+        assertSame(before.get(0), after.get(0), "Копия неизменившейся задачи переиспользуется");
+        assertEquals(TaskStatus.DONE, manager.getEpics().get(0).getStatus());
+
+        Task editable = new Task(after.get(0));
+        editable.setTitle("Changed");
+        manager.updateTask(editable);
+        assertEquals("Changed", manager.getTasks().get(0).getTitle());
+    }
+
+    @Test
+    void shouldReflectBatchedSubtaskEditsOnEveryEpicRead() {
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        List<Subtask> subs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Subtask sub = new Subtask(0, "S" + i, "Desc", TaskStatus.NEW, epic.getId(),
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 10, 28, 10 + i, 0));
+            manager.createSubtask(sub);
+            subs.add(sub);
+        }
+        manager.getEpic(epic.getId());
+
+        manager.inBatch(m -> {
+            for (TaskStatus status : TaskStatus.values()) {
+                for (Subtask sub : subs) {
+                    sub.setStatus(status);
+                    m.updateSubtask(sub);
+                }
+            }
+            m.deleteSubtaskById(subs.get(0).getId());
+        });
+
+        Epic listed = manager.getEpics().get(0);
+        assertEquals(TaskStatus.DONE, listed.getStatus());
+        assertEquals(Duration.ofMinutes(60), listed.getDuration());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 11, 0), listed.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 10, 28, 12, 30), listed.getEndTime());
+        assertEquals(TaskStatus.DONE, manager.getEpics(10, null).items().get(0).getStatus());
+        assertEquals(TaskStatus.DONE, manager.getHistory().get(0).getStatus());
+        assertEquals(2, manager.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).orElseThrow().getStatus());
+    }
+
     @Test
     void shouldSaveAndLoadTaskWithAllFields() {
         File file = new File("test_tasks.csv");
@@ -136,4 +464,53 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(task.getDuration(), loadedTask.getDuration());
         assertEquals(task.getEndTime(), loadedTask.getEndTime());
     }
+
+    @Test
+    void shouldNotifyListenersAboutEveryChange() {
+        List<TaskEvent> events = new ArrayList<>();
+        TaskChangeListener listener = events::add;
+        manager.addChangeListener(listener);
+
+        Epic epic = new Epic(0, "Epic", "Desc");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask(0, "Sub", "Desc", TaskStatus.NEW, epic.getId());
+        manager.createSubtask(subtask);
+        Subtask done = manager.getSubtask(subtask.getId()).orElseThrow();
+        done.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(done);
+        manager.deleteEpicById(epic.getId());
+        Task task = new Task(0, "Task", "Desc", TaskStatus.NEW);
+        manager.createTask(task);
+        manager.deleteTasks();
+
+        List<String> expected = List.of(
+                "CREATED EPIC " + epic.getId(),
+                "CREATED SUBTASK " + subtask.getId(), "UPDATED EPIC " + epic.getId(),
+                "UPDATED SUBTASK " + subtask.getId(), "UPDATED EPIC " + epic.getId(),
+                "DELETED EPIC " + epic.getId(), "DELETED SUBTASK " + subtask.getId(),
+                "CREATED TASK " + task.getId(),
+                "CLEARED TASK 0");
+        assertEquals(expected, events.stream().map(e -> e.action() + " " + e.type() + " " + e.id()).toList());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).version() >= events.get(i - 1).version(), "Версии событий не должны убывать");
+        }
+        assertEquals(manager.getVersion(TaskType.TASK), events.get(events.size() - 1).version());
+
+        manager.removeChangeListener(listener);
+        manager.createTask(new Task(0, "Another", "Desc", TaskStatus.NEW));
+        assertEquals(expected.size(), events.size(), "Отписанный слушатель не должен получать события");
+    }
+
+    @Test
+    void shouldDropOverflowingSubscriptionWithoutBlockingChanges() throws InterruptedException {
+        ChangeSubscription subscription = ChangeSubscription.subscribe(manager, 2);
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW));
+        }
+
+        assertTrue(subscription.isOverflowed(), "Подписка сверх буфера должна быть отменена");
+        assertEquals(5, manager.getTasks().size(), "Изменения не должны зависеть от медленного подписчика");
+        assertNull(subscription.poll(Duration.ofMillis(10)), "После переполнения событий быть не должно");
+        subscription.close();
+    }
 }
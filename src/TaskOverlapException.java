@@ -0,0 +1,9 @@
+// Задача пересекается по времени с уже запланированной. Наследует IllegalArgumentException,
+// поэтому прежние обработчики неверных данных ловят её как раньше
+public class TaskOverlapException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public TaskOverlapException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+public enum TaskType {
+    TASK,
+    EPIC,
+    SUBTASK;
+
+    public static TaskType of(Task task) {
+        if (task instanceof Epic) {
+            return EPIC;
+        }
+        return task instanceof Subtask ? SUBTASK : TASK;
+    }
+}
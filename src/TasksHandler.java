@@ -46,22 +46,32 @@ public class TasksHandler extends BaseHttpHandler implements HttpHandler {
         String[] parts = path.split("/");
 
         if (parts.length == 2) {
+            if (sendNotModifiedIfMatches(h, "tasks", manager.getVersion(TaskType.TASK))) {
+                return;
+            }
+            if (sendPageIfRequested(h, gson, manager::getTasks)) {
+                return;
+            }
             List<Task> tasks = manager.getTasks();
-            sendText(h, gson.toJson(tasks), 200);
+            sendJson(h, gson, tasks, 200);
 
         } else if (parts.length == 3) {
             try {
                 int id = Integer.parseInt(parts[2]);
-
+                long version = manager.getVersion(TaskType.TASK, id);
+                // Просмотр попадает в историю и тогда, когда клиенту хватит 304
                 Optional<Task> optionalTask = manager.getTask(id);
 
                 if (optionalTask.isEmpty()) {
                     sendNotFound(h); //
                     return;
                 }
+                if (sendNotModifiedIfMatches(h, "task-" + id, version)) {
+                    return;
+                }
 
                 Task task = optionalTask.get();
-                sendText(h, gson.toJson(task), 200);
+                sendJson(h, gson, task, 200);
 
             } catch (NumberFormatException e) {
                 sendText(h, "Некорректный идентификатор задачи", 400);
@@ -72,6 +82,10 @@ public class TasksHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handlePost(HttpExchange h, String path) throws IOException {
+        if (path.equals("/tasks/batch")) {
+            importNdjson(h, gson, manager, Task.class, TaskManager::createTask);
+            return;
+        }
         try {
             String body = new String(h.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
 
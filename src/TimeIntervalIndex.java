@@ -0,0 +1,182 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+// Индекс временных интервалов [start, end) запланированных задач.
+// Непустые интервалы в индексе попарно не пересекаются, поэтому упорядочены
+// одновременно по началу и по концу, и на пересечение достаточно проверить
+// ближайшего соседа слева — O(log n).
+// Границы интервала запоминаются в момент добавления, поэтому изменение полей
+// задачи до вызова update не ломает порядок в индексе.
+public class TimeIntervalIndex {
+
+    public record Interval(int id, LocalDateTime start, LocalDateTime end, Task task) {
+        public boolean isEmpty() {
+            return !end.isAfter(start);
+        }
+    }
+
+    public static final Comparator<Interval> ORDER = Comparator.comparing(Interval::start)
+            .thenComparingInt(Interval::id);
+
+    private final TreeSet<Interval> schedule = new TreeSet<>(ORDER);
+    private final TreeMap<LocalDateTime, Interval> byStart = new TreeMap<>();
+    private final Map<Integer, Interval> byId = new HashMap<>();
+
+    public boolean hasOverlap(Task task) {
+        return findOverlap(task.getStartTime(), task.getEndTime(), task.getId()) != null;
+    }
+
+    public Interval findOverlap(LocalDateTime start, LocalDateTime end, int excludeId) {
+        if (start == null || end == null || !end.isAfter(start)) {
+            return null;
+        }
+        Map.Entry<LocalDateTime, Interval> entry = byStart.lowerEntry(end);
+        if (entry != null && entry.getValue().id() == excludeId) {
+            entry = byStart.lowerEntry(entry.getKey());
+        }
+        if (entry != null && entry.getValue().end().isAfter(start)) {
+            return entry.getValue();
+        }
+        return null;
+    }
+
+    public void put(Task task) {
+        remove(task.getId());
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return;
+        }
+        LocalDateTime end = task.getEndTime();
+        Interval interval = new Interval(task.getId(), start, end != null ? end : start, task);
+        byId.put(interval.id(), interval);
+        schedule.add(interval);
+        if (!interval.isEmpty()) {
+            byStart.put(start, interval);
+        }
+    }
+
+    // Заполнение пустого индекса разом: интервалы сортируются один раз (на больших объёмах —
+    // параллельно) и вставляются в деревья по порядку, без поиска старых записей
+    public void putAll(Collection<? extends Task> tasks) {
+        if (!byId.isEmpty()) {
+            throw new IllegalStateException("Массовое заполнение возможно только для пустого индекса");
+        }
+        Interval[] intervals = new Interval[tasks.size()];
+        int count = 0;
+        for (Task task : tasks) {
+            LocalDateTime start = task.getStartTime();
+            if (start != null) {
+                LocalDateTime end = task.getEndTime();
+                intervals[count++] = new Interval(task.getId(), start, end != null ? end : start, task);
+            }
+        }
+        Arrays.parallelSort(intervals, 0, count, ORDER);
+        for (int i = 0; i < count; i++) {
+            Interval interval = intervals[i];
+            byId.put(interval.id(), interval);
+            schedule.add(interval);
+            if (!interval.isEmpty()) {
+                byStart.put(interval.start(), interval);
+            }
+        }
+    }
+
+    public Interval remove(int id) {
+        Interval interval = byId.remove(id);
+        if (interval != null) {
+            schedule.remove(interval);
+            if (!interval.isEmpty()) {
+                byStart.remove(interval.start(), interval);
+            }
+        }
+        return interval;
+    }
+
+    public Interval get(int id) {
+        return byId.get(id);
+    }
+
+    public ArrayList<Task> getTasks() {
+        ArrayList<Task> result = new ArrayList<>(schedule.size());
+        for (Interval interval : schedule) {
+            result.add(interval.task());
+        }
+        return result;
+    }
+
+    // Интервалы расписания строго после from в порядке ORDER; from == null — всё расписание
+    public NavigableSet<Interval> after(Interval from) {
+        return from == null ? schedule : schedule.tailSet(from, false);
+    }
+
+    // Интервалы, пересекающие окно [from, to), в порядке ORDER — без копирования расписания.
+    // Слева окно может задеть только ближайший непустой интервал, начавшийся раньше from:
+    // непустые интервалы не пересекаются между собой. Он идёт первым, а за ним — интервалы,
+    // начинающиеся в окне: задачи нулевой длительности между его началом и from в окно не попадают
+    public Iterable<Interval> overlapping(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало окна должно быть раньше конца: " + from + " — " + to);
+        }
+        NavigableSet<Interval> window = schedule.subSet(key(from), true, key(to), false);
+        Map.Entry<LocalDateTime, Interval> previous = byStart.lowerEntry(from);
+        if (previous == null || !previous.getValue().end().isAfter(from)) {
+            return window;
+        }
+        Interval left = previous.getValue();
+        return () -> Stream.concat(Stream.of(left), window.stream()).iterator();
+    }
+
+    // Интервалы, начинающиеся не раньше time, в порядке начала
+    public NavigableSet<Interval> startingFrom(LocalDateTime time) {
+        return schedule.tailSet(key(time), true);
+    }
+
+    // Самое раннее начало не раньше after, с которого отрезок длины duration ни с чем не пересекается
+    // (и, если заданы hours, целиком лежит в рабочем времени). Проходит непустые интервалы по порядку
+    // от ближайшего к after: O(log n + k), где k — число задач, которые пришлось перешагнуть
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, WorkingHours hours) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность должна быть положительной: " + duration);
+        }
+        if (hours != null && !hours.fits(duration)) {
+            throw new IllegalArgumentException("Длительность " + duration + " не помещается в рабочий день " + hours);
+        }
+        LocalDateTime candidate = hours != null ? hours.align(after, duration) : after;
+        LocalDateTime from = byStart.floorKey(candidate);
+        for (Interval next : byStart.tailMap(from != null ? from : candidate, true).values()) {
+            if (!next.end().isAfter(candidate)) {
+                continue;
+            }
+            if (!next.start().isBefore(candidate.plus(duration))) {
+                break;
+            }
+            candidate = hours != null ? hours.align(next.end(), duration) : next.end();
+        }
+        return candidate;
+    }
+
+    // Ключ меньше любого интервала с тем же началом
+    private static Interval key(LocalDateTime start) {
+        return new Interval(Integer.MIN_VALUE, start, start, null);
+    }
+
+    public void clear() {
+        schedule.clear();
+        byStart.clear();
+        byId.clear();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
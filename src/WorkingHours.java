@@ -0,0 +1,29 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Ежедневное рабочее окно [start, end) для поиска свободного времени
+public record WorkingHours(LocalTime start, LocalTime end) {
+
+    public WorkingHours {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new IllegalArgumentException("Начало рабочего дня должно быть раньше конца: " + start + " — " + end);
+        }
+    }
+
+    public boolean fits(Duration duration) {
+        return duration.compareTo(Duration.between(start, end)) <= 0;
+    }
+
+    // Ближайший момент не раньше time, с которого отрезок длины duration целиком помещается в рабочий день
+    public LocalDateTime align(LocalDateTime time, Duration duration) {
+        LocalDateTime dayStart = time.toLocalDate().atTime(start);
+        if (time.isBefore(dayStart)) {
+            return dayStart;
+        }
+        if (time.plus(duration).isAfter(time.toLocalDate().atTime(end))) {
+            return dayStart.plusDays(1);
+        }
+        return time;
+    }
+}